@@ -0,0 +1,83 @@
+package no.lundesgaard.ci.events.store;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventStoreBenchmark {
+	private static final String[] TYPES = {"repository-update", "build", "deployment"};
+	private static final int PRELOADED_EVENTS = 100000;
+
+	private InMemoryEventStore eventStore;
+	private String[] eventIds;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		eventStore = new InMemoryEventStore();
+		eventIds = new String[PRELOADED_EVENTS];
+		for (int i = 0; i < PRELOADED_EVENTS; i++) {
+			eventIds[i] = eventStore.append(event(i)).getId();
+		}
+	}
+
+	@Benchmark
+	public Event create() {
+		return eventStore.append(event(ThreadLocalRandom.current().nextInt(PRELOADED_EVENTS)));
+	}
+
+	@Benchmark
+	public Event findById() {
+		return eventStore.findById(eventIds[ThreadLocalRandom.current().nextInt(PRELOADED_EVENTS)]);
+	}
+
+	@Benchmark
+	public List<Event> findByType() {
+		return eventStore.find(new EventQuery(TYPES[ThreadLocalRandom.current().nextInt(TYPES.length)], null, null, null, null, 50));
+	}
+
+	@Benchmark
+	public long count() {
+		return eventStore.count();
+	}
+
+	private static Event event(int i) {
+		Event event = new Event(TYPES[i % TYPES.length], "repository-" + (i % 64));
+		event.setCreatedAt(Instant.now());
+		return event;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads < maxThreads * 2; threads *= 2) {
+			new Runner(new OptionsBuilder()
+					.include(EventStoreBenchmark.class.getSimpleName())
+					.threads(Math.min(threads, maxThreads))
+					.build()).run();
+		}
+	}
+}
@@ -4,14 +4,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.hateoas.config.EnableEntityLinks;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableAutoConfiguration
 @EnableEntityLinks
+@EnableScheduling
 @ComponentScan(basePackages = {
 		"no.lundesgaard.ci.events.assembler",
 		"no.lundesgaard.ci.events.controller",
 		"no.lundesgaard.ci.events.mapper",
-		"no.lundesgaard.ci.events.service"
+		"no.lundesgaard.ci.events.service",
+		"no.lundesgaard.ci.events.store"
 })
 public class EventsApplication {
 	public static void main(String[] args) {
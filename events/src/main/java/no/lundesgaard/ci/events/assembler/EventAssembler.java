@@ -8,6 +8,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class EventAssembler {
 	public Event toEntity(EventResource eventResource) {
-		return new Event(eventResource.getType(), eventResource.getValue());
+		Event event = new Event(eventResource.getType(), eventResource.getValue(), eventResource.getAttributes());
+		event.setIdempotencyKey(eventResource.getIdempotencyKey());
+		return event;
 	}
 }
@@ -4,6 +4,7 @@ import no.lundesgaard.ci.events.controller.EventsController;
 import no.lundesgaard.ci.events.model.Event;
 import no.lundesgaard.ci.events.resource.EventResource;
 
+import org.springframework.hateoas.LinkBuilder;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
 import org.springframework.stereotype.Component;
 
@@ -18,8 +19,14 @@ public class EventResourceAssembler extends ResourceAssemblerSupport<Event, Even
 		return createResourceWithId(event.getId(), event);
 	}
 
+	public EventResource toResource(Event event, LinkBuilder eventsLink) {
+		EventResource resource = instantiateResource(event);
+		resource.add(eventsLink.slash(event.getId()).withSelfRel());
+		return resource;
+	}
+
 	@Override
-	protected EventResource instantiateResource(Event event) {
-		return new EventResource(event.getId(), event.getType(), event.getValue());
+	public EventResource instantiateResource(Event event) {
+		return new EventResource(event.getId(), event.getOffset(), event.getCreatedAt(), event.getType(), event.getValue(), event.getAttributes(), event.getIdempotencyKey());
 	}
 }
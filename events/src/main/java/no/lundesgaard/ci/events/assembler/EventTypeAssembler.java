@@ -8,6 +8,11 @@ import org.springframework.stereotype.Component;
 @Component
 public class EventTypeAssembler {
 	public EventType toEntity(EventTypeResource eventTypeResource) {
-		return new EventType(eventTypeResource.getName());
+		return new EventType(
+				eventTypeResource.getName(),
+				eventTypeResource.getMaxAge(),
+				eventTypeResource.getMaxCount(),
+				eventTypeResource.isKeepLatestPerValue(),
+				eventTypeResource.getKeyAttributes());
 	}
 }
@@ -20,6 +20,6 @@ public class EventTypeResourceAssembler extends ResourceAssemblerSupport<EventTy
 
 	@Override
 	protected EventTypeResource instantiateResource(EventType eventType) {
-		return new EventTypeResource(eventType.getName());
+		return new EventTypeResource(eventType.getName(), eventType.getMaxAge(), eventType.getMaxCount(), eventType.isKeepLatestPerValue(), eventType.getKeyAttributes());
 	}
 }
@@ -0,0 +1,38 @@
+package no.lundesgaard.ci.events.assembler;
+
+import no.lundesgaard.ci.events.controller.SubscriptionsController;
+import no.lundesgaard.ci.events.model.Subscription;
+import no.lundesgaard.ci.events.model.SubscriptionStatus;
+import no.lundesgaard.ci.events.resource.SubscriptionResource;
+
+import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SubscriptionResourceAssembler extends ResourceAssemblerSupport<SubscriptionStatus, SubscriptionResource> {
+	public SubscriptionResourceAssembler() {
+		super(SubscriptionsController.class, SubscriptionResource.class);
+	}
+
+	@Override
+	public SubscriptionResource toResource(SubscriptionStatus status) {
+		return createResourceWithId(status.getSubscription().getId(), status);
+	}
+
+	@Override
+	protected SubscriptionResource instantiateResource(SubscriptionStatus status) {
+		Subscription subscription = status.getSubscription();
+		return new SubscriptionResource(
+				subscription.getId(),
+				subscription.getUrl(),
+				subscription.getTypes(),
+				status.getOffset(),
+				status.getLag(),
+				status.getQueued(),
+				status.getDelivered(),
+				status.getFailures(),
+				status.getRetryDelay(),
+				status.getLastDelivery(),
+				status.getLastError());
+	}
+}
@@ -1,21 +1,35 @@
 package no.lundesgaard.ci.events.controller;
 
+import static java.util.stream.Collectors.toList;
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequest;
 
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+
 import no.lundesgaard.ci.events.assembler.EventAssembler;
 import no.lundesgaard.ci.events.assembler.EventResourceAssembler;
 import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.resource.EventBatchResource;
+import no.lundesgaard.ci.events.resource.EventQueryResource;
 import no.lundesgaard.ci.events.resource.EventResource;
 import no.lundesgaard.ci.events.resource.EventsResource;
 import no.lundesgaard.ci.events.service.EventService;
+import no.lundesgaard.ci.events.service.EventStreamService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkBuilder;
 import org.springframework.hateoas.ResourceSupport;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -24,8 +38,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Controller
 @ExposesResourceFor(Event.class)
@@ -37,21 +54,89 @@ public class EventsController {
 	private EventResourceAssembler resourceAssembler;
 	@Autowired
 	private EventAssembler eventAssembler;
+	@Autowired
+	private EventStreamService eventStreamService;
 
 	@RequestMapping(method = GET)
 	@ResponseBody
 	public ResourceSupport events() {
 		EventsResource resource = new EventsResource(eventService.eventCount());
 		resource.add(linkTo(EventsController.class).withSelfRel());
+		resource.add(linkTo(EventsController.class).slash("query").withRel("query"));
+		resource.add(linkTo(EventsController.class).slash("stream").withRel("stream"));
+		resource.add(linkTo(SubscriptionsController.class).withRel("subscriptions"));
 		return resource;
 	}
 
 	@RequestMapping(method = POST)
-	public ResponseEntity<?> createEvent(@RequestBody EventResource eventResource) {
-		String id = eventService.createEvent(eventAssembler.toEntity(eventResource));
+	public ResponseEntity<?> createEvent(
+			@RequestBody EventResource eventResource,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+		Event event = eventAssembler.toEntity(eventResource);
+		if (idempotencyKey != null) {
+			event.setIdempotencyKey(idempotencyKey);
+		}
+		Event storedEvent = eventService.createEvent(event);
 		HttpHeaders httpHeaders = new HttpHeaders();
-		httpHeaders.setLocation(fromCurrentRequest().path("/{id}").buildAndExpand(id).toUri());
-		return new ResponseEntity<>(null, httpHeaders, CREATED);
+		if (storedEvent != null) {
+			httpHeaders.setLocation(fromCurrentRequest().path("/{id}").buildAndExpand(storedEvent.getId()).toUri());
+		}
+		return new ResponseEntity<>(null, httpHeaders, storedEvent == event ? CREATED : OK);
+	}
+
+	@RequestMapping(path = "/batch", method = POST)
+	public ResponseEntity<EventBatchResource> createEvents(@RequestBody List<EventResource> eventResources) {
+		List<String> ids = eventService.createEvents(eventResources.stream().map(eventAssembler::toEntity).collect(toList()));
+		EventBatchResource resource = new EventBatchResource(ids);
+		resource.add(linkTo(EventsController.class).withRel("events"));
+		return new ResponseEntity<>(resource, CREATED);
+	}
+
+	@RequestMapping(path = "/query", method = GET)
+	public HttpEntity<EventQueryResource> query(
+			@RequestParam(required = false) String type,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime since,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime until,
+			@RequestParam(required = false) String before,
+			@RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "50") int limit) {
+		Event beforeEvent = before == null ? null : eventService.findEventById(before);
+		Event afterEvent = after == null ? null : eventService.findEventById(after);
+		if ((before != null && beforeEvent == null) || (after != null && afterEvent == null)) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
+		EventQuery query = new EventQuery(type, instant(since), instant(until), offset(beforeEvent), offset(afterEvent), limit);
+		if (!query.isValid()) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
+		List<Event> events = eventService.findEvents(query);
+		EventQueryResource resource = new EventQueryResource(events.stream().map(resourceAssembler::toResource).collect(toList()));
+		resource.add(new Link(fromCurrentRequest().build().toUriString()).withSelfRel());
+		if (events.size() == limit) {
+			String cursor = query.isAscending() ? "after" : "before";
+			String lastId = events.get(events.size() - 1).getId();
+			resource.add(new Link(fromCurrentRequest().replaceQueryParam(cursor, lastId).build().toUriString()).withRel("next"));
+		}
+		resource.add(linkTo(EventsController.class).withRel("parent"));
+		return new ResponseEntity<>(resource, OK);
+	}
+
+	private Long offset(Event event) {
+		return event == null ? null : event.getOffset();
+	}
+
+	private Instant instant(ZonedDateTime dateTime) {
+		return dateTime == null ? null : dateTime.toInstant();
+	}
+
+	@RequestMapping(path = "/stream", method = GET, produces = "text/event-stream")
+	public SseEmitter stream(
+			@RequestParam(required = false) String type,
+			@RequestParam(required = false) Long offset,
+			@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+		long from = lastEventId != null ? lastEventId + 1 : offset != null ? offset : eventService.endOffset();
+		LinkBuilder eventsLink = linkTo(EventsController.class);
+		return eventStreamService.subscribe(type, from, event -> resourceAssembler.toResource(event, eventsLink));
 	}
 
 	@RequestMapping(path = "/{id}", method = GET)
@@ -0,0 +1,74 @@
+package no.lundesgaard.ci.events.controller;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequest;
+
+import no.lundesgaard.ci.events.assembler.SubscriptionResourceAssembler;
+import no.lundesgaard.ci.events.model.Subscription;
+import no.lundesgaard.ci.events.model.SubscriptionStatus;
+import no.lundesgaard.ci.events.resource.SubscriptionResource;
+import no.lundesgaard.ci.events.resource.SubscriptionsResource;
+import no.lundesgaard.ci.events.service.EventDispatcher;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@Controller
+@ExposesResourceFor(Subscription.class)
+@RequestMapping("/subscriptions")
+public class SubscriptionsController {
+	@Autowired
+	private EventDispatcher eventDispatcher;
+	@Autowired
+	private SubscriptionResourceAssembler resourceAssembler;
+
+	@RequestMapping(method = GET)
+	public HttpEntity<SubscriptionsResource> subscriptions() {
+		SubscriptionsResource resource = new SubscriptionsResource(eventDispatcher.statuses().stream().map(resourceAssembler::toResource).collect(toList()));
+		resource.add(linkTo(SubscriptionsController.class).withSelfRel());
+		resource.add(linkTo(EventsController.class).withRel("parent"));
+		return new ResponseEntity<>(resource, OK);
+	}
+
+	@RequestMapping(method = POST)
+	public HttpEntity<?> createSubscription(@RequestBody SubscriptionResource subscriptionResource) {
+		String url = subscriptionResource.getUrl();
+		if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
+		Subscription subscription = eventDispatcher.subscribe(url, subscriptionResource.getTypes(), subscriptionResource.getOffset());
+		HttpHeaders httpHeaders = new HttpHeaders();
+		httpHeaders.setLocation(fromCurrentRequest().path("/{id}").buildAndExpand(subscription.getId()).toUri());
+		return new ResponseEntity<>(null, httpHeaders, CREATED);
+	}
+
+	@RequestMapping(path = "/{id}", method = GET)
+	public HttpEntity<SubscriptionResource> subscription(@PathVariable String id) {
+		SubscriptionStatus status = eventDispatcher.status(id);
+		if (status == null) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		return new ResponseEntity<>(resourceAssembler.toResource(status), OK);
+	}
+
+	@RequestMapping(path = "/{id}", method = DELETE)
+	public HttpEntity<?> deleteSubscription(@PathVariable String id) {
+		return new ResponseEntity<>(eventDispatcher.unsubscribe(id) ? NO_CONTENT : NOT_FOUND);
+	}
+}
@@ -1,15 +1,28 @@
 package no.lundesgaard.ci.events.model;
 
+import java.time.Instant;
+import java.util.Map;
+
 public class Event {
 	private String id;
+	private long offset;
+	private Instant createdAt;
 	private String type;
 	private String value;
+	private Map<String, String> attributes;
+	private String idempotencyKey;
 
 	public Event(String type, String value) {
 		this.type = type;
 		this.value = value;
 	}
 
+	public Event(String type, String value, Map<String, String> attributes) {
+		this.type = type;
+		this.value = value;
+		this.attributes = attributes;
+	}
+
 	public void setId(String id) {
 		this.id = id;
 	}
@@ -18,6 +31,22 @@ public class Event {
 		return id;
 	}
 
+	public long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
 	public String getType() {
 		return type;
 	}
@@ -33,4 +62,20 @@ public class Event {
 	public void setValue(String value) {
 		this.value = value;
 	}
+
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	public void setAttributes(Map<String, String> attributes) {
+		this.attributes = attributes;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
 }
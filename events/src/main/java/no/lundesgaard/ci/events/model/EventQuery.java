@@ -0,0 +1,55 @@
+package no.lundesgaard.ci.events.model;
+
+import java.time.Instant;
+
+public class EventQuery {
+	private static final int MAX_LIMIT = 1000;
+
+	private final String type;
+	private final Instant since;
+	private final Instant until;
+	private final Long before;
+	private final Long after;
+	private final int limit;
+
+	public EventQuery(String type, Instant since, Instant until, Long before, Long after, int limit) {
+		this.type = type;
+		this.since = since;
+		this.until = until;
+		this.before = before;
+		this.after = after;
+		this.limit = limit;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Instant getSince() {
+		return since;
+	}
+
+	public Instant getUntil() {
+		return until;
+	}
+
+	public Long getBefore() {
+		return before;
+	}
+
+	public Long getAfter() {
+		return after;
+	}
+
+	public boolean isAscending() {
+		return after != null;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public boolean isValid() {
+		return limit > 0 && limit <= MAX_LIMIT && (before == null || after == null) && (since == null || until == null || !since.isAfter(until));
+	}
+}
@@ -1,12 +1,26 @@
 package no.lundesgaard.ci.events.model;
 
+import java.util.List;
+
 public class EventType {
 	private String name;
+	private Long maxAge;
+	private Integer maxCount;
+	private boolean keepLatestPerValue;
+	private List<String> keyAttributes;
 
 	public EventType(String name) {
 		this.name = name;
 	}
 
+	public EventType(String name, Long maxAge, Integer maxCount, boolean keepLatestPerValue, List<String> keyAttributes) {
+		this.name = name;
+		this.maxAge = maxAge;
+		this.maxCount = maxCount;
+		this.keepLatestPerValue = keepLatestPerValue;
+		this.keyAttributes = keyAttributes;
+	}
+
 	public EventType() {
 	}
 
@@ -17,4 +31,40 @@ public class EventType {
 	public void setName(String name) {
 		this.name = name;
 	}
+
+	public Long getMaxAge() {
+		return maxAge;
+	}
+
+	public void setMaxAge(Long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	public Integer getMaxCount() {
+		return maxCount;
+	}
+
+	public void setMaxCount(Integer maxCount) {
+		this.maxCount = maxCount;
+	}
+
+	public boolean isKeepLatestPerValue() {
+		return keepLatestPerValue;
+	}
+
+	public void setKeepLatestPerValue(boolean keepLatestPerValue) {
+		this.keepLatestPerValue = keepLatestPerValue;
+	}
+
+	public List<String> getKeyAttributes() {
+		return keyAttributes;
+	}
+
+	public void setKeyAttributes(List<String> keyAttributes) {
+		this.keyAttributes = keyAttributes;
+	}
+
+	public boolean hasRetention() {
+		return maxAge != null || maxCount != null || keepLatestPerValue;
+	}
 }
@@ -0,0 +1,52 @@
+package no.lundesgaard.ci.events.model;
+
+import java.util.List;
+
+public class Subscription {
+	private String id;
+	private String url;
+	private List<String> types;
+	private long offset;
+
+	public Subscription(String id, String url, List<String> types, long offset) {
+		this.id = id;
+		this.url = url;
+		this.types = types;
+		this.offset = offset;
+	}
+
+	public Subscription() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public List<String> getTypes() {
+		return types;
+	}
+
+	public void setTypes(List<String> types) {
+		this.types = types;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+}
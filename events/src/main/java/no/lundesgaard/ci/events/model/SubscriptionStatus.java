@@ -0,0 +1,63 @@
+package no.lundesgaard.ci.events.model;
+
+import java.time.Instant;
+
+public class SubscriptionStatus {
+	private final Subscription subscription;
+	private final long offset;
+	private final long lag;
+	private final int queued;
+	private final long delivered;
+	private final long failures;
+	private final long retryDelay;
+	private final Instant lastDelivery;
+	private final String lastError;
+
+	public SubscriptionStatus(Subscription subscription, long offset, long lag, int queued, long delivered, long failures, long retryDelay, Instant lastDelivery, String lastError) {
+		this.subscription = subscription;
+		this.offset = offset;
+		this.lag = lag;
+		this.queued = queued;
+		this.delivered = delivered;
+		this.failures = failures;
+		this.retryDelay = retryDelay;
+		this.lastDelivery = lastDelivery;
+		this.lastError = lastError;
+	}
+
+	public Subscription getSubscription() {
+		return subscription;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getLag() {
+		return lag;
+	}
+
+	public int getQueued() {
+		return queued;
+	}
+
+	public long getDelivered() {
+		return delivered;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public Instant getLastDelivery() {
+		return lastDelivery;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+}
@@ -0,0 +1,24 @@
+package no.lundesgaard.ci.events.resource;
+
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class EventBatchResource extends ResourceSupport {
+	private List<String> eventIds;
+
+	public EventBatchResource(List<String> eventIds) {
+		this.eventIds = eventIds;
+	}
+
+	public EventBatchResource() {
+	}
+
+	public List<String> getEventIds() {
+		return eventIds;
+	}
+
+	public void setEventIds(List<String> eventIds) {
+		this.eventIds = eventIds;
+	}
+}
@@ -0,0 +1,17 @@
+package no.lundesgaard.ci.events.resource;
+
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class EventQueryResource extends ResourceSupport {
+	private List<EventResource> events;
+
+	public EventQueryResource(List<EventResource> events) {
+		this.events = events;
+	}
+
+	public List<EventResource> getEvents() {
+		return events;
+	}
+}
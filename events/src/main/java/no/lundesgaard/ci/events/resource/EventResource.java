@@ -1,16 +1,30 @@
 package no.lundesgaard.ci.events.resource;
 
+import java.time.Instant;
+import java.util.Map;
+
 import org.springframework.hateoas.ResourceSupport;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class EventResource extends ResourceSupport {
 	private String eventId;
+	private Long offset;
+	private Instant createdAt;
 	private String type;
 	private String value;
+	private Map<String, String> attributes;
+	private String idempotencyKey;
 
-	public EventResource(String eventId, String type, String value) {
+	public EventResource(String eventId, Long offset, Instant createdAt, String type, String value, Map<String, String> attributes, String idempotencyKey) {
 		this.eventId = eventId;
+		this.offset = offset;
+		this.createdAt = createdAt;
 		this.type = type;
 		this.value = value;
+		this.attributes = attributes;
+		this.idempotencyKey = idempotencyKey;
 	}
 
 	public EventResource() {
@@ -24,6 +38,22 @@ public class EventResource extends ResourceSupport {
 		this.eventId = eventId;
 	}
 
+	public Long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(Long offset) {
+		this.offset = offset;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
 	public String getType() {
 		return type;
 	}
@@ -39,4 +69,20 @@ public class EventResource extends ResourceSupport {
 	public void setValue(String value) {
 		this.value = value;
 	}
+
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	public void setAttributes(Map<String, String> attributes) {
+		this.attributes = attributes;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
 }
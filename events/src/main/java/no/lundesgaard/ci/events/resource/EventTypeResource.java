@@ -1,12 +1,25 @@
 package no.lundesgaard.ci.events.resource;
 
+import java.util.List;
+
 import org.springframework.hateoas.ResourceSupport;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class EventTypeResource extends ResourceSupport {
 	private String name;
+	private Long maxAge;
+	private Integer maxCount;
+	private boolean keepLatestPerValue;
+	private List<String> keyAttributes;
 
-	public EventTypeResource(String name) {
+	public EventTypeResource(String name, Long maxAge, Integer maxCount, boolean keepLatestPerValue, List<String> keyAttributes) {
 		this.name = name;
+		this.maxAge = maxAge;
+		this.maxCount = maxCount;
+		this.keepLatestPerValue = keepLatestPerValue;
+		this.keyAttributes = keyAttributes;
 	}
 
 	public EventTypeResource() {
@@ -19,4 +32,36 @@ public class EventTypeResource extends ResourceSupport {
 	public void setName(String name) {
 		this.name = name;
 	}
+
+	public Long getMaxAge() {
+		return maxAge;
+	}
+
+	public void setMaxAge(Long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	public Integer getMaxCount() {
+		return maxCount;
+	}
+
+	public void setMaxCount(Integer maxCount) {
+		this.maxCount = maxCount;
+	}
+
+	public boolean isKeepLatestPerValue() {
+		return keepLatestPerValue;
+	}
+
+	public void setKeepLatestPerValue(boolean keepLatestPerValue) {
+		this.keepLatestPerValue = keepLatestPerValue;
+	}
+
+	public List<String> getKeyAttributes() {
+		return keyAttributes;
+	}
+
+	public void setKeyAttributes(List<String> keyAttributes) {
+		this.keyAttributes = keyAttributes;
+	}
 }
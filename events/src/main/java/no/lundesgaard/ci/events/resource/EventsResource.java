@@ -3,17 +3,17 @@ package no.lundesgaard.ci.events.resource;
 import org.springframework.hateoas.ResourceSupport;
 
 public class EventsResource extends ResourceSupport {
-	private int events;
+	private long events;
 
-	public EventsResource(int events) {
+	public EventsResource(long events) {
 		this.events = events;
 	}
 
-	public int getEvents() {
+	public long getEvents() {
 		return events;
 	}
 
-	public void setEvents(int events) {
+	public void setEvents(long events) {
 		this.events = events;
 	}
 }
@@ -0,0 +1,100 @@
+package no.lundesgaard.ci.events.resource;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubscriptionResource extends ResourceSupport {
+	private String subscriptionId;
+	private String url;
+	private List<String> types;
+	private Long offset;
+	private Long lag;
+	private Integer queued;
+	private Long delivered;
+	private Long failures;
+	private Long retryDelay;
+	private Instant lastDelivery;
+	private String lastError;
+
+	public SubscriptionResource(String subscriptionId, String url, List<String> types, Long offset, Long lag, Integer queued, Long delivered, Long failures, Long retryDelay, Instant lastDelivery, String lastError) {
+		this.subscriptionId = subscriptionId;
+		this.url = url;
+		this.types = types;
+		this.offset = offset;
+		this.lag = lag;
+		this.queued = queued;
+		this.delivered = delivered;
+		this.failures = failures;
+		this.retryDelay = retryDelay;
+		this.lastDelivery = lastDelivery;
+		this.lastError = lastError;
+	}
+
+	public SubscriptionResource() {
+	}
+
+	public String getSubscriptionId() {
+		return subscriptionId;
+	}
+
+	public void setSubscriptionId(String subscriptionId) {
+		this.subscriptionId = subscriptionId;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public List<String> getTypes() {
+		return types;
+	}
+
+	public void setTypes(List<String> types) {
+		this.types = types;
+	}
+
+	public Long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(Long offset) {
+		this.offset = offset;
+	}
+
+	public Long getLag() {
+		return lag;
+	}
+
+	public Integer getQueued() {
+		return queued;
+	}
+
+	public Long getDelivered() {
+		return delivered;
+	}
+
+	public Long getFailures() {
+		return failures;
+	}
+
+	public Long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public Instant getLastDelivery() {
+		return lastDelivery;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+}
@@ -0,0 +1,17 @@
+package no.lundesgaard.ci.events.resource;
+
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class SubscriptionsResource extends ResourceSupport {
+	private List<SubscriptionResource> subscriptions;
+
+	public SubscriptionsResource(List<SubscriptionResource> subscriptions) {
+		this.subscriptions = subscriptions;
+	}
+
+	public List<SubscriptionResource> getSubscriptions() {
+		return subscriptions;
+	}
+}
@@ -0,0 +1,20 @@
+package no.lundesgaard.ci.events.service;
+
+import no.lundesgaard.ci.events.store.EventStore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class EventDeduplicator {
+	@Autowired
+	private EventStore eventStore;
+
+	@Value("${services.events.dedup.window:86400000}")
+	private long window;
+
+	public String eventId(String key) {
+		return eventStore.findIdByIdempotencyKey(key, System.currentTimeMillis() - window);
+	}
+}
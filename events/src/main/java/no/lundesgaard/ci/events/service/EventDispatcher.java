@@ -0,0 +1,299 @@
+package no.lundesgaard.ci.events.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.events.assembler.EventResourceAssembler;
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.Subscription;
+import no.lundesgaard.ci.events.model.SubscriptionStatus;
+import no.lundesgaard.ci.events.resource.EventResource;
+import no.lundesgaard.ci.events.store.EventStore;
+import no.lundesgaard.ci.events.store.EventStoreException;
+import no.lundesgaard.ci.events.store.SubscriptionRegistry;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+@Service
+public class EventDispatcher {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventDispatcher.class);
+
+	@Autowired
+	private EventStore eventStore;
+	@Autowired
+	private SubscriptionRegistry subscriptionRegistry;
+	@Autowired
+	private EventResourceAssembler eventResourceAssembler;
+
+	@Value("${services.events.dispatch.workers:8}")
+	private int workerCount;
+	@Value("${services.events.dispatch.slowWorkers:2}")
+	private int slowWorkerCount;
+	@Value("${services.events.dispatch.slowDeliveryThreshold:1000}")
+	private long slowDeliveryThreshold;
+	@Value("${services.events.dispatch.queueCapacity:1000}")
+	private int queueCapacity;
+	@Value("${services.events.dispatch.batchSize:100}")
+	private int batchSize;
+	@Value("${services.events.dispatch.maxConnections:64}")
+	private int maxConnections;
+	@Value("${services.events.dispatch.maxConnectionsPerSubscriber:2}")
+	private int maxConnectionsPerSubscriber;
+	@Value("${services.events.dispatch.connectTimeout:2000}")
+	private int connectTimeout;
+	@Value("${services.events.dispatch.readTimeout:5000}")
+	private int readTimeout;
+	@Value("${services.events.dispatch.minRetryDelay:500}")
+	private long minRetryDelay;
+	@Value("${services.events.dispatch.maxRetryDelay:60000}")
+	private long maxRetryDelay;
+
+	private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+	private CloseableHttpClient httpClient;
+	private RestTemplate restTemplate;
+	private ScheduledExecutorService workers;
+	private ScheduledExecutorService slowWorkers;
+
+	@PostConstruct
+	public void start() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerSubscriber);
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(connectTimeout)
+						.setConnectTimeout(connectTimeout)
+						.setSocketTimeout(readTimeout)
+						.build())
+				.build();
+		restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+		workers = Executors.newScheduledThreadPool(workerCount, new CustomizableThreadFactory("event-dispatcher-"));
+		slowWorkers = Executors.newScheduledThreadPool(slowWorkerCount, new CustomizableThreadFactory("event-dispatcher-slow-"));
+		subscriptionRegistry.findAll().forEach(this::register);
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		workers.shutdownNow();
+		slowWorkers.shutdownNow();
+		checkpoint();
+		httpClient.close();
+	}
+
+	public Subscription subscribe(String url, List<String> types, Long offset) {
+		long end = eventStore.endOffset();
+		long start = offset == null ? end : Math.max(0, Math.min(offset, end));
+		Subscription subscription = new Subscription(UUID.randomUUID().toString(), url, types == null ? Collections.emptyList() : types, start);
+		subscriptionRegistry.save(subscription);
+		register(subscription);
+		return subscription;
+	}
+
+	public boolean unsubscribe(String id) {
+		Subscriber subscriber = subscribers.remove(id);
+		if (subscriber == null) {
+			return false;
+		}
+		subscriber.cancelled = true;
+		subscriptionRegistry.delete(id);
+		return true;
+	}
+
+	public List<SubscriptionStatus> statuses() {
+		return subscribers.values().stream().map(this::status).collect(toList());
+	}
+
+	public SubscriptionStatus status(String id) {
+		Subscriber subscriber = subscribers.get(id);
+		return subscriber == null ? null : status(subscriber);
+	}
+
+	public void eventsAppended() {
+		subscribers.values().forEach(subscriber -> schedule(subscriber, 0));
+	}
+
+	@Scheduled(fixedDelayString = "${services.events.dispatch.checkpointInterval:5000}")
+	public void checkpoint() {
+		boolean changed = false;
+		for (Subscriber subscriber : subscribers.values()) {
+			long offset = subscriber.acknowledgedOffset;
+			if (subscriber.subscription.getOffset() != offset) {
+				subscriber.subscription.setOffset(offset);
+				changed = true;
+			}
+		}
+		if (changed) {
+			try {
+				subscriptionRegistry.flush();
+			} catch (EventStoreException e) {
+				LOGGER.warn("Failed to checkpoint subscriptions: {}", e.getMessage());
+			}
+		}
+	}
+
+	private void register(Subscription subscription) {
+		Subscriber subscriber = new Subscriber(subscription);
+		subscribers.put(subscription.getId(), subscriber);
+		schedule(subscriber, 0);
+	}
+
+	private SubscriptionStatus status(Subscriber subscriber) {
+		long offset = subscriber.acknowledgedOffset;
+		return new SubscriptionStatus(
+				subscriber.subscription,
+				offset,
+				Math.max(0, eventStore.endOffset() - offset),
+				subscriber.queued,
+				subscriber.delivered.get(),
+				subscriber.failures.get(),
+				subscriber.retryDelay,
+				subscriber.lastDelivery,
+				subscriber.lastError);
+	}
+
+	private void schedule(Subscriber subscriber, long delay) {
+		if (!subscriber.cancelled && subscriber.scheduled.compareAndSet(false, true)) {
+			workers(subscriber).schedule(() -> deliver(subscriber), delay, MILLISECONDS);
+		}
+	}
+
+	private ScheduledExecutorService workers(Subscriber subscriber) {
+		return subscriber.slow ? slowWorkers : workers;
+	}
+
+	private void deliver(Subscriber subscriber) {
+		try {
+			subscriber.fill();
+			if (!subscriber.cancelled && subscriber.queued > 0) {
+				List<Event> batch = subscriber.batch();
+				long started = System.currentTimeMillis();
+				post(subscriber.subscription, batch);
+				subscriber.slow = System.currentTimeMillis() - started > slowDeliveryThreshold;
+				subscriber.acknowledge(batch.size());
+				subscriber.delivered.addAndGet(batch.size());
+				subscriber.lastDelivery = Instant.now();
+				subscriber.retryDelay = 0;
+			}
+		} catch (RuntimeException e) {
+			subscriber.failures.incrementAndGet();
+			subscriber.retryDelay = subscriber.retryDelay == 0 ? minRetryDelay : Math.min(subscriber.retryDelay * 2, maxRetryDelay);
+			subscriber.lastError = e.getMessage();
+			subscriber.slow = true;
+			LOGGER.warn("Failed to deliver events to <{}>, {} behind, retrying in {} ms: {}",
+					subscriber.subscription.getUrl(), eventStore.endOffset() - subscriber.acknowledgedOffset, subscriber.retryDelay, e.getMessage());
+			if (!subscriber.cancelled) {
+				slowWorkers.schedule(() -> deliver(subscriber), subscriber.retryDelay, MILLISECONDS);
+				return;
+			}
+		}
+		if (!subscriber.cancelled && subscriber.queued > 0) {
+			workers(subscriber).execute(() -> deliver(subscriber));
+			return;
+		}
+		subscriber.scheduled.set(false);
+		if (subscriber.readOffset < eventStore.endOffset()) {
+			schedule(subscriber, 0);
+		}
+	}
+
+	private void post(Subscription subscription, List<Event> batch) {
+		List<EventResource> resources = batch.stream().map(eventResourceAssembler::instantiateResource).collect(toList());
+		HttpHeaders httpHeaders = new HttpHeaders();
+		httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+		restTemplate.postForObject(subscription.getUrl(), new HttpEntity<>(resources, httpHeaders), Void.class);
+	}
+
+	private class Subscriber {
+		private final Subscription subscription;
+		private final Set<String> types;
+		private final Deque<Event> queue = new ArrayDeque<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicLong delivered = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private long readOffset;
+		private volatile long acknowledgedOffset;
+		private volatile int queued;
+		private volatile boolean cancelled;
+		private volatile boolean slow;
+		private volatile long retryDelay;
+		private volatile Instant lastDelivery;
+		private volatile String lastError;
+
+		private Subscriber(Subscription subscription) {
+			this.subscription = subscription;
+			this.types = subscription.getTypes() == null ? Collections.emptySet() : new HashSet<>(subscription.getTypes());
+			this.readOffset = subscription.getOffset();
+			this.acknowledgedOffset = subscription.getOffset();
+		}
+
+		private int fill() {
+			long end = eventStore.endOffset();
+			while (queue.size() < queueCapacity && readOffset < end) {
+				Event event = eventStore.read(readOffset++);
+				if (event != null && (types.isEmpty() || types.contains(event.getType()))) {
+					queue.addLast(event);
+				}
+			}
+			queued = queue.size();
+			if (queue.isEmpty()) {
+				acknowledgedOffset = readOffset;
+			}
+			return queue.size();
+		}
+
+		private List<Event> batch() {
+			List<Event> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+			for (Event event : queue) {
+				if (batch.size() == batchSize) {
+					break;
+				}
+				batch.add(event);
+			}
+			return batch;
+		}
+
+		private void acknowledge(int count) {
+			for (int i = 0; i < count; i++) {
+				queue.removeFirst();
+			}
+			queued = queue.size();
+			acknowledgedOffset = queue.isEmpty() ? readOffset : queue.peekFirst().getOffset();
+		}
+	}
+}
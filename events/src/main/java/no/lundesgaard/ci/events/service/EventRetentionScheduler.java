@@ -0,0 +1,30 @@
+package no.lundesgaard.ci.events.service;
+
+import no.lundesgaard.ci.events.store.EventStore;
+import no.lundesgaard.ci.events.store.EventStoreException;
+import no.lundesgaard.ci.events.store.EventTypeRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class EventRetentionScheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventRetentionScheduler.class);
+
+	@Autowired
+	private EventStore eventStore;
+	@Autowired
+	private EventTypeRegistry eventTypeRegistry;
+
+	@Scheduled(initialDelayString = "${services.events.retention.interval:60000}", fixedDelayString = "${services.events.retention.interval:60000}")
+	public void applyRetention() {
+		try {
+			eventStore.compact(eventTypeRegistry.findAll());
+		} catch (EventStoreException e) {
+			LOGGER.warn("Event retention failed: {}", e.getMessage());
+		}
+	}
+}
@@ -2,48 +2,140 @@ package no.lundesgaard.ci.events.service;
 
 import static java.util.stream.Collectors.toList;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
 import no.lundesgaard.ci.events.model.EventType;
+import no.lundesgaard.ci.events.store.EventStore;
+import no.lundesgaard.ci.events.store.EventTypeRegistry;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class EventService {
-	private Map<String, Event> eventMap = new HashMap<>();
-	private Map<String, EventType> eventTypeMap = new HashMap<>();
-	{
-		eventTypeMap.put("repository-update", new EventType("repository-update"));
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventService.class);
+
+	@Autowired
+	private EventStore eventStore;
+	@Autowired
+	private EventTypeRegistry eventTypeRegistry;
+	@Autowired
+	private EventStreamService eventStreamService;
+	@Autowired
+	private EventDeduplicator eventDeduplicator;
+	@Autowired
+	private EventDispatcher eventDispatcher;
+
+	public long eventCount() {
+		return eventStore.count();
+	}
+
+	public long endOffset() {
+		return eventStore.endOffset();
+	}
+
+	public Event createEvent(Event event) {
+		event.setCreatedAt(Instant.now());
+		String key = event.getIdempotencyKey();
+		if (key == null) {
+			eventStore.append(event);
+		} else {
+			String id = eventDeduplicator.eventId(key);
+			if (id == null) {
+				synchronized (eventDeduplicator) {
+					id = eventDeduplicator.eventId(key);
+					if (id == null) {
+						eventStore.append(event);
+					}
+				}
+			}
+			if (id != null) {
+				LOGGER.debug("Dropped duplicate event with idempotency key <{}>", key);
+				return eventStore.findById(id);
+			}
+		}
+		eventStreamService.eventsAppended();
+		eventDispatcher.eventsAppended();
+		return event;
+	}
+
+	public List<String> createEvents(List<Event> events) {
+		Instant createdAt = Instant.now();
+		events.forEach(event -> event.setCreatedAt(createdAt));
+		List<Event> newEvents = new ArrayList<>();
+		Map<String, Event> newKeys = new HashMap<>();
+		Map<Event, String> duplicateIds = new HashMap<>();
+		for (Event event : events) {
+			String id = event.getIdempotencyKey() == null ? null : eventDeduplicator.eventId(event.getIdempotencyKey());
+			if (id != null) {
+				duplicateIds.put(event, id);
+			}
+		}
+		synchronized (eventDeduplicator) {
+			for (Event event : events) {
+				if (duplicateIds.containsKey(event)) {
+					continue;
+				}
+				String key = event.getIdempotencyKey();
+				if (key == null) {
+					newEvents.add(event);
+				} else if (newKeys.containsKey(key)) {
+					duplicateIds.put(event, null);
+				} else {
+					String id = eventDeduplicator.eventId(key);
+					if (id != null) {
+						duplicateIds.put(event, id);
+					} else {
+						newKeys.put(key, event);
+						newEvents.add(event);
+					}
+				}
+			}
+			if (!newEvents.isEmpty()) {
+				eventStore.append(newEvents);
+			}
+		}
+		if (!newEvents.isEmpty()) {
+			eventStreamService.eventsAppended();
+			eventDispatcher.eventsAppended();
+		}
+		return events.stream().map(event -> eventId(event, newKeys, duplicateIds)).collect(toList());
 	}
 
-	public int eventCount() {
-		return eventMap.size();
+	private String eventId(Event event, Map<String, Event> newKeys, Map<Event, String> duplicateIds) {
+		if (!duplicateIds.containsKey(event)) {
+			return event.getId();
+		}
+		Event original = newKeys.get(event.getIdempotencyKey());
+		return original != null ? original.getId() : duplicateIds.get(event);
 	}
 
-	public String createEvent(Event event) {
-		event.setId(UUID.randomUUID().toString());
-		eventMap.put(event.getId(), event);
-		return event.getId();
+	public List<Event> findEvents(EventQuery query) {
+		return eventStore.find(query);
 	}
 
 	public Event findEventById(String id) {
-		return eventMap.get(id);
+		return eventStore.findById(id);
 	}
 
 	public List<String> findAllEventTypeNames() {
-		return eventTypeMap.values().stream().map(EventType::getName).collect(toList());
+		return eventTypeRegistry.findAll().stream().map(EventType::getName).collect(toList());
 	}
 
 	public String createEventType(EventType eventType) {
-		eventTypeMap.put(eventType.getName(), eventType);
+		eventTypeRegistry.save(eventType);
 		return eventType.getName();
 	}
 
 	public EventType findEventTypeByName(String name) {
-		return eventTypeMap.get(name);
+		return eventTypeRegistry.findByName(name);
 	}
 }
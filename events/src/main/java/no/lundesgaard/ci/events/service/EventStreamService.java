@@ -0,0 +1,130 @@
+package no.lundesgaard.ci.events.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.store.EventStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Service
+public class EventStreamService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventStreamService.class);
+
+	@Autowired
+	private EventStore eventStore;
+
+	@Value("${services.events.stream.workers:4}")
+	private int workerCount;
+	@Value("${services.events.stream.timeout:600000}")
+	private long timeout;
+
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+	private ExecutorService workers;
+
+	@PostConstruct
+	public void start() {
+		workers = new ThreadPoolExecutor(workerCount, workerCount, 0, MILLISECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("event-stream-"));
+	}
+
+	@PreDestroy
+	public void stop() {
+		workers.shutdownNow();
+		subscriptions.forEach(subscription -> subscription.emitter.complete());
+	}
+
+	public SseEmitter subscribe(String type, long offset, Function<Event, ?> mapper) {
+		SseEmitter emitter = new SseEmitter(timeout);
+		Subscription subscription = new Subscription(emitter, type, Math.max(0, offset), mapper);
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onTimeout(() -> subscriptions.remove(subscription));
+		subscriptions.add(subscription);
+		drain(subscription);
+		return emitter;
+	}
+
+	public void eventsAppended() {
+		subscriptions.forEach(this::drain);
+	}
+
+	@Scheduled(fixedDelayString = "${services.events.stream.heartbeatInterval:15000}")
+	public void heartbeat() {
+		for (Subscription subscription : subscriptions) {
+			try {
+				subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+			} catch (IOException | IllegalStateException e) {
+				unsubscribe(subscription);
+			}
+		}
+	}
+
+	private void drain(Subscription subscription) {
+		if (subscription.draining.compareAndSet(false, true)) {
+			workers.execute(() -> send(subscription));
+		}
+	}
+
+	private void send(Subscription subscription) {
+		try {
+			while (subscription.offset < eventStore.endOffset() && subscriptions.contains(subscription)) {
+				Event event = eventStore.read(subscription.offset);
+				if (event != null && (subscription.type == null || subscription.type.equals(event.getType()))) {
+					subscription.emitter.send(SseEmitter.event()
+							.id(Long.toString(event.getOffset()))
+							.name(event.getType())
+							.data(subscription.mapper.apply(event), MediaType.APPLICATION_JSON));
+				}
+				subscription.offset++;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Dropping event stream subscriber at offset {}: {}", subscription.offset, e.getMessage());
+			unsubscribe(subscription);
+		} finally {
+			subscription.draining.set(false);
+		}
+		if (subscription.offset < eventStore.endOffset() && subscriptions.contains(subscription)) {
+			drain(subscription);
+		}
+	}
+
+	private void unsubscribe(Subscription subscription) {
+		if (subscriptions.remove(subscription)) {
+			subscription.emitter.complete();
+		}
+	}
+
+	private static class Subscription {
+		private final SseEmitter emitter;
+		private final String type;
+		private final Function<Event, ?> mapper;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile long offset;
+
+		private Subscription(SseEmitter emitter, String type, long offset, Function<Event, ?> mapper) {
+			this.emitter = emitter;
+			this.type = type;
+			this.offset = offset;
+			this.mapper = mapper;
+		}
+	}
+}
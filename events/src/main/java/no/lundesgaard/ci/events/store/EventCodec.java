@@ -0,0 +1,86 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import no.lundesgaard.ci.events.model.Event;
+
+final class EventCodec {
+	private EventCodec() {
+	}
+
+	static byte[] encode(Event event) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeLong(event.getCreatedAt() == null ? 0 : event.getCreatedAt().toEpochMilli());
+			writeString(output, event.getId());
+			writeString(output, event.getType());
+			writeString(output, event.getValue());
+			Map<String, String> attributes = event.getAttributes();
+			output.writeInt(attributes == null ? -1 : attributes.size());
+			if (attributes != null) {
+				for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+					writeString(output, attribute.getKey());
+					writeString(output, attribute.getValue());
+				}
+			}
+			if (event.getIdempotencyKey() != null) {
+				writeString(output, event.getIdempotencyKey());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	static Event decode(long offset, ByteBuffer buffer) {
+		Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+		String id = readString(buffer);
+		String type = readString(buffer);
+		String value = readString(buffer);
+		int attributeCount = buffer.getInt();
+		Map<String, String> attributes = null;
+		if (attributeCount >= 0) {
+			attributes = new LinkedHashMap<>();
+			for (int i = 0; i < attributeCount; i++) {
+				attributes.put(readString(buffer), readString(buffer));
+			}
+		}
+		Event event = new Event(type, value, attributes);
+		event.setId(id);
+		event.setOffset(offset);
+		event.setCreatedAt(createdAt);
+		if (buffer.hasRemaining()) {
+			event.setIdempotencyKey(readString(buffer));
+		}
+		return event;
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
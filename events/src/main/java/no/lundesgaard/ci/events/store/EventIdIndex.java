@@ -0,0 +1,94 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+class EventIdIndex {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private long[] keys = new long[INITIAL_CAPACITY * 2];
+	private long[] offsets = new long[INITIAL_CAPACITY];
+	private int size;
+
+	void put(String id, long offset) {
+		UUID uuid = uuid(id);
+		if (uuid == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if ((size + 1) * 2 > offsets.length) {
+				resize();
+			}
+			if (insert(keys, offsets, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), offset + 1)) {
+				size++;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	Long get(String id) {
+		UUID uuid = uuid(id);
+		if (uuid == null) {
+			return null;
+		}
+		long mostSignificantBits = uuid.getMostSignificantBits();
+		long leastSignificantBits = uuid.getLeastSignificantBits();
+		lock.readLock().lock();
+		try {
+			int mask = offsets.length - 1;
+			for (int slot = slot(mostSignificantBits, leastSignificantBits, mask); offsets[slot] != 0; slot = (slot + 1) & mask) {
+				if (keys[slot * 2] == mostSignificantBits && keys[slot * 2 + 1] == leastSignificantBits) {
+					return offsets[slot] - 1;
+				}
+			}
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void resize() {
+		long[] resizedKeys = new long[keys.length * 2];
+		long[] resizedOffsets = new long[offsets.length * 2];
+		for (int slot = 0; slot < offsets.length; slot++) {
+			if (offsets[slot] != 0) {
+				insert(resizedKeys, resizedOffsets, keys[slot * 2], keys[slot * 2 + 1], offsets[slot]);
+			}
+		}
+		keys = resizedKeys;
+		offsets = resizedOffsets;
+	}
+
+	private static boolean insert(long[] keys, long[] offsets, long mostSignificantBits, long leastSignificantBits, long offset) {
+		int mask = offsets.length - 1;
+		int slot = slot(mostSignificantBits, leastSignificantBits, mask);
+		while (offsets[slot] != 0) {
+			if (keys[slot * 2] == mostSignificantBits && keys[slot * 2 + 1] == leastSignificantBits) {
+				offsets[slot] = offset;
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot * 2] = mostSignificantBits;
+		keys[slot * 2 + 1] = leastSignificantBits;
+		offsets[slot] = offset;
+		return true;
+	}
+
+	private static int slot(long mostSignificantBits, long leastSignificantBits, int mask) {
+		long hash = (mostSignificantBits ^ leastSignificantBits) * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	private static UUID uuid(String id) {
+		try {
+			return id == null ? null : UUID.fromString(id);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.Arrays;
+
+final class EventIds {
+	private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+	private static final int LENGTH = 16;
+	private static final int OFFSET_BITS = 36;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+	private static final int[] VALUES = new int[128];
+
+	static {
+		Arrays.fill(VALUES, -1);
+		for (int i = 0; i < ALPHABET.length(); i++) {
+			VALUES[ALPHABET.charAt(i)] = i;
+			VALUES[Character.toLowerCase(ALPHABET.charAt(i))] = i;
+		}
+	}
+
+	private EventIds() {
+	}
+
+	static String encode(long timestamp, long offset) {
+		long low = (timestamp << OFFSET_BITS) | (offset & OFFSET_MASK);
+		long high = timestamp >>> (Long.SIZE - OFFSET_BITS);
+		char[] id = new char[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			int bit = i * 5;
+			long chunk = bit >= Long.SIZE ? high >>> (bit - Long.SIZE) : bit + 5 <= Long.SIZE ? low >>> bit : (low >>> bit) | (high << (Long.SIZE - bit));
+			id[LENGTH - 1 - i] = ALPHABET.charAt((int) (chunk & 31));
+		}
+		return new String(id);
+	}
+
+	static long offset(String id) {
+		if (id == null || id.length() != LENGTH) {
+			return -1;
+		}
+		long low = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			char c = id.charAt(i);
+			int value = c < VALUES.length ? VALUES[c] : -1;
+			if (value < 0) {
+				return -1;
+			}
+			low = (low << 5) | value;
+		}
+		return low & OFFSET_MASK;
+	}
+}
@@ -0,0 +1,536 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.model.EventType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "services.events.store", havingValue = "log", matchIfMissing = true)
+public class EventLog implements EventStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventLog.class);
+
+	@Value("${services.events.log.directory:/events}")
+	private String directory;
+	@Value("${services.events.log.segmentBytes:67108864}")
+	private int segmentBytes;
+	@Value("${services.events.log.segmentEntries:1048576}")
+	private int segmentEntries;
+	@Value("${services.events.dedup.window:86400000}")
+	private long keyWindow;
+
+	private final ConcurrentNavigableMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+	private final EventIdIndex idIndex = new EventIdIndex();
+	private final Map<String, OffsetList> typeIndex = new ConcurrentHashMap<>();
+	private final IdempotencyIndex idempotencyIndex = new IdempotencyIndex();
+	private final Object compactionLock = new Object();
+	private final Queue<LogSegment> unindexedSegments = new ConcurrentLinkedQueue<>();
+	private final AtomicLong liveEvents = new AtomicLong();
+	private volatile LogSegment activeSegment;
+	private volatile long nextOffset;
+	private long lastTimestamp;
+
+	@PostConstruct
+	public synchronized void open() throws IOException {
+		File logDirectory = new File(directory);
+		if (!logDirectory.isDirectory() && !logDirectory.mkdirs()) {
+			throw new EventStoreException(format("Failed to create event log directory <%s>", logDirectory));
+		}
+		long[] compactedOffsets = Arrays.stream(logDirectory.listFiles((dir, name) -> name.endsWith(LogSegment.COMPACTED_SUFFIX)))
+				.mapToLong(LogSegment::baseOffset)
+				.distinct()
+				.toArray();
+		for (long baseOffset : compactedOffsets) {
+			LogSegment.recoverCompaction(logDirectory, baseOffset);
+		}
+		long[] baseOffsets = Arrays.stream(logDirectory.listFiles((dir, name) -> name.endsWith(".log")))
+				.mapToLong(LogSegment::baseOffset)
+				.sorted()
+				.toArray();
+		for (int i = 0; i < baseOffsets.length; i++) {
+			LogSegment segment;
+			if (i == baseOffsets.length - 1) {
+				segment = LogSegment.open(logDirectory, baseOffsets[i], segmentBytes, segmentEntries);
+				segment.recover();
+			} else {
+				segment = LogSegment.open(logDirectory, baseOffsets[i]);
+				segment.load();
+			}
+			Map.Entry<Long, LogSegment> previous = segments.lastEntry();
+			if (previous != null && previous.getKey() + previous.getValue().entries() > segment.baseOffset()) {
+				LOGGER.info("Deleting event log segment <{}> superseded by compacted segment <{}>", previous.getKey(), segment.baseOffset());
+				segments.remove(previous.getKey());
+				previous.getValue().delete();
+			}
+			segments.put(segment.baseOffset(), segment);
+		}
+		if (segments.isEmpty()) {
+			segments.put(0L, LogSegment.open(logDirectory, 0, segmentBytes, segmentEntries));
+		}
+		activeSegment = segments.lastEntry().getValue();
+		nextOffset = activeSegment.baseOffset() + activeSegment.entries();
+		liveEvents.set(0);
+		long keysSince = System.currentTimeMillis() - keyWindow;
+		for (LogSegment segment : segments.headMap(activeSegment.baseOffset()).values()) {
+			SegmentIndex segmentIndex = SegmentIndex.read(segment);
+			if (segmentIndex == null) {
+				segmentIndex = SegmentIndex.build(segment);
+				writeSegmentIndex(segment, segmentIndex);
+			}
+			segmentIndex.forEach(segment.baseOffset(), this::index);
+			liveEvents.addAndGet(segmentIndex.size());
+			KeyIndex keyIndex = KeyIndex.read(segment.file(KeyIndex.SUFFIX));
+			if (keyIndex == null) {
+				keyIndex = KeyIndex.build(segment);
+				writeKeyIndex(segment, keyIndex);
+			}
+			keyIndex.forEach(keysSince, idempotencyIndex);
+		}
+		for (File file : orphanedKeyIndexes(logDirectory)) {
+			KeyIndex keyIndex = KeyIndex.read(file);
+			if (keyIndex != null) {
+				keyIndex.forEach(keysSince, idempotencyIndex);
+			}
+		}
+		deleteExpiredKeyIndexes(keysSince);
+		for (int i = 0; i < activeSegment.entries(); i++) {
+			if (!activeSegment.isTombstone(i)) {
+				index(EventCodec.decode(activeSegment.baseOffset() + i, activeSegment.record(i)));
+				liveEvents.incrementAndGet();
+			}
+		}
+		for (LogSegment segment : segments.descendingMap().values()) {
+			if (segment.entries() > 0) {
+				lastTimestamp = segment.timestamp(segment.entries() - 1);
+				break;
+			}
+		}
+		LOGGER.info("Opened event log <{}> with {} events in {} segments", logDirectory, liveEvents.get(), segments.size());
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		for (LogSegment segment : segments.values()) {
+			segment.close();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${services.events.log.flushInterval:1000}")
+	public void flush() {
+		activeSegment.flush();
+		LogSegment segment;
+		while ((segment = unindexedSegments.poll()) != null) {
+			synchronized (compactionLock) {
+				if (segments.get(segment.baseOffset()) == segment) {
+					writeSegmentIndex(segment);
+					writeKeyIndex(segment);
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized Event append(Event event) {
+		return appendEvent(event);
+	}
+
+	@Override
+	public synchronized List<Event> append(List<Event> events) {
+		events.forEach(this::appendEvent);
+		return events;
+	}
+
+	private Event appendEvent(Event event) {
+		if (event.getCreatedAt() == null || event.getCreatedAt().toEpochMilli() < lastTimestamp) {
+			event.setCreatedAt(Instant.ofEpochMilli(Math.max(lastTimestamp, System.currentTimeMillis())));
+		}
+		event.setId(EventIds.encode(event.getCreatedAt().toEpochMilli(), nextOffset));
+		byte[] payload = EventCodec.encode(event);
+		if (!activeSegment.append(payload)) {
+			if (activeSegment.entries() > 0) {
+				roll();
+			}
+			if (!activeSegment.append(payload)) {
+				throw new EventStoreException(format("Event of %d bytes does not fit in a log segment of %d bytes", payload.length, segmentBytes));
+			}
+		}
+		event.setOffset(nextOffset);
+		index(event);
+		liveEvents.incrementAndGet();
+		lastTimestamp = event.getCreatedAt().toEpochMilli();
+		nextOffset++;
+		return event;
+	}
+
+	@Override
+	public Event read(long offset) {
+		if (offset < 0 || offset >= nextOffset) {
+			return null;
+		}
+		Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+		if (entry == null) {
+			return null;
+		}
+		LogSegment segment = entry.getValue();
+		int relativeOffset = (int) (offset - entry.getKey());
+		if (relativeOffset >= segment.entries() || segment.isTombstone(relativeOffset)) {
+			return null;
+		}
+		return EventCodec.decode(offset, segment.record(relativeOffset));
+	}
+
+	@Override
+	public Event findById(String id) {
+		long offset = EventIds.offset(id);
+		if (offset >= 0) {
+			Event event = read(offset);
+			return event != null && event.getId().equalsIgnoreCase(id) ? event : null;
+		}
+		Long legacyOffset = idIndex.get(id);
+		return legacyOffset == null ? null : read(legacyOffset);
+	}
+
+	@Override
+	public List<Event> find(EventQuery query) {
+		long end = nextOffset;
+		long lower = query.getSince() == null ? segments.firstKey() : firstOffsetAt(query.getSince().toEpochMilli(), end);
+		long upper = query.getUntil() == null ? end : firstOffsetAt(query.getUntil().toEpochMilli() + 1, end);
+		if (query.getBefore() != null) {
+			upper = Math.min(upper, query.getBefore());
+		}
+		if (query.getAfter() != null) {
+			lower = Math.max(lower, query.getAfter() + 1);
+		}
+		List<Event> events = new ArrayList<>();
+		if (query.getType() == null) {
+			if (lower < upper) {
+				addEvents(events, lower, upper, query);
+			}
+			return events;
+		}
+		OffsetList offsets = typeIndex.get(query.getType());
+		if (offsets == null) {
+			return events;
+		}
+		int size = offsets.size();
+		int first = offsets.lowerBound(lower, size);
+		int last = offsets.lowerBound(upper, size);
+		if (query.isAscending()) {
+			for (int i = first; i < last && events.size() < query.getLimit(); i++) {
+				addEvent(events, offsets.get(i));
+			}
+		} else {
+			for (int i = last - 1; i >= first && events.size() < query.getLimit(); i--) {
+				addEvent(events, offsets.get(i));
+			}
+		}
+		return events;
+	}
+
+	@Override
+	public String findIdByIdempotencyKey(String key, long since) {
+		return idempotencyIndex.eventId(key, since);
+	}
+
+	@Override
+	public long count() {
+		return liveEvents.get();
+	}
+
+	@Override
+	public long endOffset() {
+		return nextOffset;
+	}
+
+	@Override
+	public void compact(Collection<EventType> eventTypes) {
+		long keysSince = System.currentTimeMillis() - keyWindow;
+		idempotencyIndex.expire(keysSince);
+		Map<String, EventType> policies = Retention.policies(eventTypes);
+		if (policies.isEmpty()) {
+			synchronized (compactionLock) {
+				deleteExpiredKeyIndexes(keysSince);
+			}
+			return;
+		}
+		synchronized (compactionLock) {
+			long activeOffset = activeSegment.baseOffset();
+			Retention retention = new Retention(policies, System.currentTimeMillis());
+			for (EventType eventType : policies.values()) {
+				OffsetList offsets = typeIndex.get(eventType.getName());
+				if (offsets == null) {
+					continue;
+				}
+				int size = offsets.size();
+				Integer maxCount = eventType.getMaxCount();
+				if (maxCount != null && size > maxCount) {
+					retention.limitCount(eventType.getName(), maxCount <= 0 ? Long.MAX_VALUE : offsets.get(size - maxCount));
+				}
+				if (eventType.isKeepLatestPerValue()) {
+					for (int i = offsets.lowerBound(activeOffset, size); i < size; i++) {
+						Event event = read(offsets.get(i));
+						if (event != null) {
+							retention.seen(event);
+						}
+					}
+				}
+			}
+			int sealedSegments = segments.headMap(activeOffset).size();
+			int removed = 0;
+			for (LogSegment segment : segments.headMap(activeOffset).descendingMap().values()) {
+				try {
+					removed += compact(segment, retention);
+				} catch (IOException e) {
+					throw new EventStoreException(format("Failed to compact event log segment <%d>: %s", segment.baseOffset(), e.getMessage()), e);
+				}
+			}
+			if (removed > 0) {
+				liveEvents.addAndGet(-removed);
+				compactTypeIndex(activeOffset);
+			}
+			deleteExpiredKeyIndexes(keysSince);
+			int deletedSegments = sealedSegments - segments.headMap(activeOffset).size();
+			if (removed > 0 || deletedSegments > 0) {
+				LOGGER.info("Compacted event log <{}>: removed {} events and {} empty segments", directory, removed, deletedSegments);
+			}
+		}
+	}
+
+	private int compact(LogSegment segment, Predicate<Event> retention) throws IOException {
+		File keyIndexFile = segment.file(KeyIndex.SUFFIX);
+		if (!keyIndexFile.isFile()) {
+			writeKeyIndex(segment);
+		}
+		int entries = segment.entries();
+		BitSet retained = new BitSet(entries);
+		int removed = 0;
+		for (int i = entries - 1; i >= 0; i--) {
+			if (segment.isTombstone(i)) {
+				continue;
+			}
+			if (retention.test(EventCodec.decode(segment.baseOffset() + i, segment.record(i)))) {
+				retained.set(i);
+			} else {
+				removed++;
+			}
+		}
+		if (retained.isEmpty()) {
+			segments.remove(segment.baseOffset(), segment);
+			segment.delete();
+			return removed;
+		}
+		if (removed == 0 && retained.get(0) && retained.get(entries - 1)) {
+			return 0;
+		}
+		LogSegment compacted = segment.compact(retained::get);
+		segments.put(compacted.baseOffset(), compacted);
+		if (compacted.baseOffset() == segment.baseOffset()) {
+			segment.close();
+		} else {
+			segments.remove(segment.baseOffset(), segment);
+			segment.delete();
+			if (keyIndexFile.isFile()) {
+				Files.move(keyIndexFile.toPath(), compacted.file(KeyIndex.SUFFIX).toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			}
+		}
+		writeSegmentIndex(compacted);
+		return removed;
+	}
+
+	private void compactTypeIndex(long activeOffset) {
+		for (String type : typeIndex.keySet()) {
+			OffsetList offsets = typeIndex.get(type);
+			int size = offsets.size();
+			OffsetList retained = new OffsetList();
+			for (int i = 0; i < size; i++) {
+				long offset = offsets.get(i);
+				if (offset >= activeOffset || exists(offset)) {
+					retained.add(offset);
+				}
+			}
+			if (retained.size() == size) {
+				continue;
+			}
+			synchronized (this) {
+				OffsetList current = typeIndex.get(type);
+				for (int i = size; i < current.size(); i++) {
+					retained.add(current.get(i));
+				}
+				if (retained.size() == 0) {
+					typeIndex.remove(type);
+				} else {
+					typeIndex.put(type, retained);
+				}
+			}
+		}
+	}
+
+	private boolean exists(long offset) {
+		Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+		if (entry == null) {
+			return false;
+		}
+		int relativeOffset = (int) (offset - entry.getKey());
+		return relativeOffset < entry.getValue().entries() && !entry.getValue().isTombstone(relativeOffset);
+	}
+
+	private void writeKeyIndex(LogSegment segment) {
+		writeKeyIndex(segment, KeyIndex.build(segment));
+	}
+
+	private void writeKeyIndex(LogSegment segment, KeyIndex keyIndex) {
+		try {
+			keyIndex.write(segment);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write idempotency keys of event log segment <{}>: {}", segment.baseOffset(), e.getMessage());
+		}
+	}
+
+	private List<File> orphanedKeyIndexes(File logDirectory) {
+		List<File> files = new ArrayList<>();
+		for (File file : logDirectory.listFiles((dir, name) -> name.endsWith(KeyIndex.SUFFIX))) {
+			if (!segments.containsKey(LogSegment.baseOffset(file))) {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	private void deleteExpiredKeyIndexes(long since) {
+		for (File file : orphanedKeyIndexes(new File(directory))) {
+			try {
+				if (KeyIndex.newestCreatedAt(file) < since) {
+					Files.delete(file.toPath());
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Failed to delete expired idempotency keys <{}>: {}", file, e.getMessage());
+			}
+		}
+	}
+
+	private void writeSegmentIndex(LogSegment segment) {
+		writeSegmentIndex(segment, SegmentIndex.build(segment));
+	}
+
+	private void writeSegmentIndex(LogSegment segment, SegmentIndex segmentIndex) {
+		try {
+			segmentIndex.write(segment);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write index of event log segment <{}>: {}", segment.baseOffset(), e.getMessage());
+		}
+	}
+
+	private void index(Event event) {
+		index(event.getOffset(), event.getType(), EventIds.offset(event.getId()) < 0 ? event.getId() : null);
+		if (event.getIdempotencyKey() != null) {
+			idempotencyIndex.put(event.getIdempotencyKey(), event.getOffset(), event.getCreatedAt().toEpochMilli());
+		}
+	}
+
+	private void index(long offset, String type, String legacyId) {
+		if (legacyId != null) {
+			idIndex.put(legacyId, offset);
+		}
+		if (type != null) {
+			typeIndex.computeIfAbsent(type, name -> new OffsetList()).add(offset);
+		}
+	}
+
+	private void addEvents(List<Event> events, long lower, long upper, EventQuery query) {
+		Long first = segments.floorKey(lower);
+		ConcurrentNavigableMap<Long, LogSegment> range = segments.subMap(first == null ? lower : first, upper);
+		for (LogSegment segment : query.isAscending() ? range.values() : range.descendingMap().values()) {
+			int from = (int) Math.max(0, lower - segment.baseOffset());
+			int to = (int) Math.min(segment.entries(), upper - segment.baseOffset());
+			if (query.isAscending()) {
+				for (int i = from; i < to && events.size() < query.getLimit(); i++) {
+					addEvent(events, segment, i);
+				}
+			} else {
+				for (int i = to - 1; i >= from && events.size() < query.getLimit(); i--) {
+					addEvent(events, segment, i);
+				}
+			}
+			if (events.size() >= query.getLimit()) {
+				return;
+			}
+		}
+	}
+
+	private void addEvent(List<Event> events, LogSegment segment, int relativeOffset) {
+		if (!segment.isTombstone(relativeOffset)) {
+			events.add(EventCodec.decode(segment.baseOffset() + relativeOffset, segment.record(relativeOffset)));
+		}
+	}
+
+	private void addEvent(List<Event> events, long offset) {
+		Event event = read(offset);
+		if (event != null) {
+			events.add(event);
+		}
+	}
+
+	private long firstOffsetAt(long timestamp, long end) {
+		for (LogSegment segment : segments.headMap(end).values()) {
+			int entries = (int) Math.min(segment.entries(), end - segment.baseOffset());
+			if (entries == 0 || segment.timestamp(entries - 1) < timestamp) {
+				continue;
+			}
+			int low = 0;
+			int high = entries;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (segment.timestamp(middle) < timestamp) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return segment.baseOffset() + low;
+		}
+		return end;
+	}
+
+	private void roll() {
+		activeSegment.flush();
+		try {
+			LogSegment segment = LogSegment.open(new File(directory), nextOffset, segmentBytes, segmentEntries);
+			segments.put(segment.baseOffset(), segment);
+			unindexedSegments.add(activeSegment);
+			activeSegment = segment;
+		} catch (IOException e) {
+			throw new EventStoreException(format("Failed to roll event log <%s> at offset %d: %s", directory, nextOffset, e.getMessage()), e);
+		}
+	}
+}
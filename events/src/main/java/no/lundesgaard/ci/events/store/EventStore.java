@@ -0,0 +1,28 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.Collection;
+import java.util.List;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.model.EventType;
+
+public interface EventStore {
+	Event append(Event event);
+
+	List<Event> append(List<Event> events);
+
+	Event read(long offset);
+
+	Event findById(String id);
+
+	String findIdByIdempotencyKey(String key, long since);
+
+	List<Event> find(EventQuery query);
+
+	long count();
+
+	long endOffset();
+
+	void compact(Collection<EventType> eventTypes);
+}
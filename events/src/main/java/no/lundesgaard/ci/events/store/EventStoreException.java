@@ -0,0 +1,11 @@
+package no.lundesgaard.ci.events.store;
+
+public class EventStoreException extends RuntimeException {
+	public EventStoreException(String message) {
+		super(message);
+	}
+
+	public EventStoreException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
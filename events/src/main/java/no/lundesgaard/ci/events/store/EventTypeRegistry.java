@@ -0,0 +1,81 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+
+import no.lundesgaard.ci.events.model.EventType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Component
+public class EventTypeRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventTypeRegistry.class);
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${services.events.types.file:/events/types.json}")
+	private String file;
+
+	private final Map<String, EventType> eventTypeMap = new ConcurrentSkipListMap<>();
+
+	@PostConstruct
+	public void load() throws IOException {
+		File typesFile = new File(file);
+		if (!file.isEmpty() && typesFile.isFile()) {
+			List<EventType> eventTypes = objectMapper.readValue(typesFile, new TypeReference<List<EventType>>() {
+			});
+			eventTypes.forEach(eventType -> eventTypeMap.put(eventType.getName(), eventType));
+			LOGGER.info("Loaded {} event types from <{}>", eventTypes.size(), typesFile);
+		}
+		EventType repositoryUpdate = eventTypeMap.get("repository-update");
+		if (repositoryUpdate == null) {
+			save(new EventType("repository-update", null, null, true, singletonList("ref")));
+		} else if (repositoryUpdate.isKeepLatestPerValue() && repositoryUpdate.getKeyAttributes() == null) {
+			repositoryUpdate.setKeyAttributes(singletonList("ref"));
+			save(repositoryUpdate);
+		}
+	}
+
+	public Collection<EventType> findAll() {
+		return eventTypeMap.values();
+	}
+
+	public EventType findByName(String name) {
+		return eventTypeMap.get(name);
+	}
+
+	public void save(EventType eventType) {
+		eventTypeMap.put(eventType.getName(), eventType);
+		flush();
+	}
+
+	private synchronized void flush() {
+		if (file.isEmpty()) {
+			return;
+		}
+		File typesFile = new File(file);
+		try {
+			JsonFiles.write(objectMapper, typesFile, new ArrayList<>(eventTypeMap.values()));
+		} catch (IOException e) {
+			throw new EventStoreException(format("Failed to save event types to <%s>: %s", typesFile, e.getMessage()), e);
+		}
+	}
+}
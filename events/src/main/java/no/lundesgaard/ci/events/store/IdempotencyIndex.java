@@ -0,0 +1,35 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class IdempotencyIndex {
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	void put(String key, long offset, long createdAt) {
+		entries.merge(key, new Entry(offset, createdAt), (current, entry) -> entry.createdAt > current.createdAt ? entry : current);
+	}
+
+	String eventId(String key, long since) {
+		Entry entry = entries.get(key);
+		return entry == null || entry.createdAt < since ? null : EventIds.encode(entry.createdAt, entry.offset);
+	}
+
+	void expire(long before) {
+		entries.values().removeIf(entry -> entry.createdAt < before);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private static class Entry {
+		private final long offset;
+		private final long createdAt;
+
+		private Entry(long offset, long createdAt) {
+			this.offset = offset;
+			this.createdAt = createdAt;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package no.lundesgaard.ci.events.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.model.EventType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "services.events.store", havingValue = "memory")
+public class InMemoryEventStore implements EventStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryEventStore.class);
+
+	@Value("${services.events.dedup.window:86400000}")
+	private long keyWindow;
+
+	private final ConcurrentNavigableMap<Long, Event> events = new ConcurrentSkipListMap<>();
+	private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Event>> typeIndex = new ConcurrentHashMap<>();
+	private final AtomicLong reservedOffset = new AtomicLong();
+	private final AtomicLong committedOffset = new AtomicLong();
+	private final AtomicLong liveEvents = new AtomicLong();
+	private final IdempotencyIndex idempotencyIndex = new IdempotencyIndex();
+	private final Object compactionLock = new Object();
+
+	@Override
+	public Event append(Event event) {
+		store(reservedOffset.getAndIncrement(), event);
+		commit();
+		return event;
+	}
+
+	@Override
+	public List<Event> append(List<Event> events) {
+		long offset = reservedOffset.getAndAdd(events.size());
+		for (Event event : events) {
+			store(offset++, event);
+		}
+		commit();
+		return events;
+	}
+
+	@Override
+	public Event read(long offset) {
+		return offset >= 0 && offset < committedOffset.get() ? events.get(offset) : null;
+	}
+
+	@Override
+	public Event findById(String id) {
+		long offset = EventIds.offset(id);
+		Event event = offset < 0 ? null : read(offset);
+		return event != null && event.getId().equalsIgnoreCase(id) ? event : null;
+	}
+
+	@Override
+	public List<Event> find(EventQuery query) {
+		long end = committedOffset.get();
+		long lower = query.getAfter() == null ? 0 : query.getAfter() + 1;
+		long upper = query.getBefore() == null ? end : Math.min(end, query.getBefore());
+		NavigableMap<Long, Event> source = query.getType() == null ? events : typeIndex.get(query.getType());
+		if (source == null || lower >= upper) {
+			return Collections.emptyList();
+		}
+		NavigableMap<Long, Event> range = source.subMap(lower, true, upper, false);
+		Collection<Event> candidates = query.isAscending() ? range.values() : range.descendingMap().values();
+		long since = query.getSince() == null ? Long.MIN_VALUE : query.getSince().toEpochMilli();
+		long until = query.getUntil() == null ? Long.MAX_VALUE : query.getUntil().toEpochMilli();
+		List<Event> result = new ArrayList<>();
+		for (Event event : candidates) {
+			long createdAt = event.getCreatedAt().toEpochMilli();
+			if (createdAt >= since && createdAt <= until) {
+				result.add(event);
+				if (result.size() == query.getLimit()) {
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String findIdByIdempotencyKey(String key, long since) {
+		return idempotencyIndex.eventId(key, since);
+	}
+
+	@Override
+	public long count() {
+		return liveEvents.get();
+	}
+
+	@Override
+	public long endOffset() {
+		return committedOffset.get();
+	}
+
+	@Override
+	public void compact(Collection<EventType> eventTypes) {
+		idempotencyIndex.expire(System.currentTimeMillis() - keyWindow);
+		Map<String, EventType> policies = Retention.policies(eventTypes);
+		if (policies.isEmpty()) {
+			return;
+		}
+		synchronized (compactionLock) {
+			long end = committedOffset.get();
+			Retention retention = new Retention(policies, System.currentTimeMillis());
+			for (EventType eventType : policies.values()) {
+				ConcurrentNavigableMap<Long, Event> offsets = typeIndex.get(eventType.getName());
+				Integer maxCount = eventType.getMaxCount();
+				if (offsets == null || maxCount == null) {
+					continue;
+				}
+				if (maxCount <= 0) {
+					retention.limitCount(eventType.getName(), Long.MAX_VALUE);
+					continue;
+				}
+				int kept = 0;
+				for (Long offset : offsets.headMap(end).descendingKeySet()) {
+					if (++kept == maxCount) {
+						retention.limitCount(eventType.getName(), offset);
+						break;
+					}
+				}
+			}
+			int removed = 0;
+			for (Event event : events.headMap(end).descendingMap().values()) {
+				if (!retention.test(event)) {
+					events.remove(event.getOffset(), event);
+					ConcurrentNavigableMap<Long, Event> offsets = event.getType() == null ? null : typeIndex.get(event.getType());
+					if (offsets != null) {
+						offsets.remove(event.getOffset(), event);
+					}
+					liveEvents.decrementAndGet();
+					removed++;
+				}
+			}
+			if (removed > 0) {
+				LOGGER.info("Compacted in-memory event store: removed {} events", removed);
+			}
+		}
+	}
+
+	private void store(long offset, Event event) {
+		if (event.getCreatedAt() == null) {
+			event.setCreatedAt(Instant.now());
+		}
+		event.setId(EventIds.encode(event.getCreatedAt().toEpochMilli(), offset));
+		event.setOffset(offset);
+		if (event.getIdempotencyKey() != null) {
+			idempotencyIndex.put(event.getIdempotencyKey(), offset, event.getCreatedAt().toEpochMilli());
+		}
+		if (event.getType() != null) {
+			typeIndex.computeIfAbsent(event.getType(), type -> new ConcurrentSkipListMap<>()).put(offset, event);
+		}
+		events.put(offset, event);
+		liveEvents.incrementAndGet();
+	}
+
+	private void commit() {
+		long committed;
+		while ((committed = committedOffset.get()) < reservedOffset.get() && events.containsKey(committed)) {
+			committedOffset.compareAndSet(committed, committed + 1);
+		}
+	}
+}
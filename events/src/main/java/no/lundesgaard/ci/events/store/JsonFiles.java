@@ -0,0 +1,26 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+final class JsonFiles {
+	private JsonFiles() {
+	}
+
+	static void write(ObjectMapper objectMapper, File file, Object value) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException(format("Failed to create directory <%s>", directory));
+		}
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		objectMapper.writeValue(temporaryFile, value);
+		Files.move(temporaryFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+}
@@ -0,0 +1,128 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import no.lundesgaard.ci.events.model.Event;
+
+class KeyIndex {
+	static final String SUFFIX = ".keys";
+	private static final int FORMAT_VERSION = 1;
+
+	private final long newestCreatedAt;
+	private final long[] offsets;
+	private final long[] createdAts;
+	private final String[] keys;
+
+	private KeyIndex(long newestCreatedAt, long[] offsets, long[] createdAts, String[] keys) {
+		this.newestCreatedAt = newestCreatedAt;
+		this.offsets = offsets;
+		this.createdAts = createdAts;
+		this.keys = keys;
+	}
+
+	static KeyIndex build(LogSegment segment) {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < segment.entries(); i++) {
+			if (segment.isTombstone(i)) {
+				continue;
+			}
+			Event event = EventCodec.decode(segment.baseOffset() + i, segment.record(i));
+			if (event.getIdempotencyKey() != null) {
+				events.add(event);
+			}
+		}
+		long newestCreatedAt = Long.MIN_VALUE;
+		long[] offsets = new long[events.size()];
+		long[] createdAts = new long[events.size()];
+		String[] keys = new String[events.size()];
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			offsets[i] = event.getOffset();
+			createdAts[i] = event.getCreatedAt().toEpochMilli();
+			keys[i] = event.getIdempotencyKey();
+			newestCreatedAt = Math.max(newestCreatedAt, createdAts[i]);
+		}
+		return new KeyIndex(newestCreatedAt, offsets, createdAts, keys);
+	}
+
+	static KeyIndex read(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+			if (input.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			long newestCreatedAt = input.readLong();
+			int size = input.readInt();
+			long[] offsets = new long[size];
+			long[] createdAts = new long[size];
+			String[] keys = new String[size];
+			for (int i = 0; i < size; i++) {
+				offsets[i] = input.readLong();
+				createdAts[i] = input.readLong();
+				byte[] key = new byte[input.readInt()];
+				input.readFully(key);
+				keys[i] = new String(key, UTF_8);
+			}
+			return new KeyIndex(newestCreatedAt, offsets, createdAts, keys);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	static long newestCreatedAt(File file) throws IOException {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+			return input.readInt() == FORMAT_VERSION ? input.readLong() : Long.MIN_VALUE;
+		} catch (EOFException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	void write(LogSegment segment) throws IOException {
+		File file = segment.file(SUFFIX);
+		File temporaryFile = segment.file(SUFFIX + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temporaryFile);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 65536))) {
+			output.writeInt(FORMAT_VERSION);
+			output.writeLong(newestCreatedAt);
+			output.writeInt(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				output.writeLong(offsets[i]);
+				output.writeLong(createdAts[i]);
+				byte[] key = keys[i].getBytes(UTF_8);
+				output.writeInt(key.length);
+				output.write(key);
+			}
+			output.flush();
+			stream.getFD().sync();
+		}
+		Files.move(temporaryFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+
+	void forEach(long since, IdempotencyIndex idempotencyIndex) {
+		if (newestCreatedAt < since) {
+			return;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (createdAts[i] >= since) {
+				idempotencyIndex.put(keys[i], offsets[i], createdAts[i]);
+			}
+		}
+	}
+}
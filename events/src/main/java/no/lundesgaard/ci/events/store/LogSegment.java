@@ -0,0 +1,257 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32;
+
+class LogSegment implements Closeable {
+	static final int HEADER_SIZE = 8;
+	static final String COMPACTED_SUFFIX = ".compacted";
+	private static final int INDEX_ENTRY_SIZE = 4;
+	private static final int TOMBSTONE_SIZE = 8;
+
+	private final File directory;
+	private final long baseOffset;
+	private final RandomAccessFile logFile;
+	private final RandomAccessFile indexFile;
+	private final MappedByteBuffer log;
+	private final MappedByteBuffer index;
+	private final int maxEntries;
+	private int entries;
+	private int size;
+
+	private LogSegment(File directory, long baseOffset, RandomAccessFile logFile, RandomAccessFile indexFile, MappedByteBuffer log, MappedByteBuffer index) {
+		this.directory = directory;
+		this.baseOffset = baseOffset;
+		this.logFile = logFile;
+		this.indexFile = indexFile;
+		this.log = log;
+		this.index = index;
+		this.maxEntries = index.capacity() / INDEX_ENTRY_SIZE;
+	}
+
+	static LogSegment open(File directory, long baseOffset) throws IOException {
+		return open(directory, baseOffset, 0, 0);
+	}
+
+	static LogSegment open(File directory, long baseOffset, int segmentBytes, int segmentEntries) throws IOException {
+		RandomAccessFile logFile = new RandomAccessFile(logFile(directory, baseOffset, ""), "rw");
+		RandomAccessFile indexFile = new RandomAccessFile(indexFile(directory, baseOffset, ""), "rw");
+		try {
+			MappedByteBuffer log = map(logFile.getChannel(), segmentBytes);
+			MappedByteBuffer index = map(indexFile.getChannel(), (long) segmentEntries * INDEX_ENTRY_SIZE);
+			return new LogSegment(directory, baseOffset, logFile, indexFile, log, index);
+		} catch (IOException | RuntimeException e) {
+			logFile.close();
+			indexFile.close();
+			throw e;
+		}
+	}
+
+	static void recoverCompaction(File directory, long baseOffset) throws IOException {
+		File compactedLog = logFile(directory, baseOffset, COMPACTED_SUFFIX);
+		File compactedIndex = indexFile(directory, baseOffset, COMPACTED_SUFFIX);
+		if (compactedLog.exists()) {
+			Files.delete(compactedLog.toPath());
+			Files.deleteIfExists(compactedIndex.toPath());
+		} else if (compactedIndex.exists()) {
+			Files.move(compactedIndex.toPath(), indexFile(directory, baseOffset, "").toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		}
+	}
+
+	private static File logFile(File directory, long baseOffset, String suffix) {
+		return new File(directory, format("%020d.log%s", baseOffset, suffix));
+	}
+
+	private static File indexFile(File directory, long baseOffset, String suffix) {
+		return new File(directory, format("%020d.index%s", baseOffset, suffix));
+	}
+
+	static long baseOffset(File file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(0, name.indexOf('.')));
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size));
+	}
+
+	long baseOffset() {
+		return baseOffset;
+	}
+
+	int entries() {
+		return entries;
+	}
+
+	void load() {
+		int low = 0;
+		int high = maxEntries;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (index.getInt(middle * INDEX_ENTRY_SIZE) != 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		entries = low;
+		size = entries == 0 ? 0 : index.getInt((entries - 1) * INDEX_ENTRY_SIZE);
+	}
+
+	void recover() {
+		CRC32 crc = new CRC32();
+		int position = 0;
+		entries = 0;
+		while (entries < maxEntries && position + HEADER_SIZE <= log.capacity()) {
+			int length = log.getInt(position);
+			if (length <= 0 || position + HEADER_SIZE + length > log.capacity()) {
+				break;
+			}
+			ByteBuffer payload = payload(position, position + HEADER_SIZE + length);
+			crc.reset();
+			crc.update(payload);
+			if ((int) crc.getValue() != log.getInt(position + 4)) {
+				break;
+			}
+			position += HEADER_SIZE + length;
+			index.putInt(entries++ * INDEX_ENTRY_SIZE, position);
+		}
+		size = position;
+		for (int i = size; i < log.capacity() && i + HEADER_SIZE <= log.capacity() && log.getLong(i) != 0; i += HEADER_SIZE) {
+			log.putLong(i, 0);
+		}
+		for (int i = entries; i < maxEntries && index.getInt(i * INDEX_ENTRY_SIZE) != 0; i++) {
+			index.putInt(i * INDEX_ENTRY_SIZE, 0);
+		}
+	}
+
+	boolean append(byte[] payload) {
+		int end = size + HEADER_SIZE + payload.length;
+		if (entries >= maxEntries || end > log.capacity() || end < 0) {
+			return false;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer buffer = log.duplicate();
+		buffer.position(size + HEADER_SIZE);
+		buffer.put(payload);
+		log.putInt(size + 4, (int) crc.getValue());
+		log.putInt(size, payload.length);
+		index.putInt(entries * INDEX_ENTRY_SIZE, end);
+		size = end;
+		entries++;
+		return true;
+	}
+
+	boolean isTombstone(int relativeOffset) {
+		int start = relativeOffset == 0 ? 0 : index.getInt((relativeOffset - 1) * INDEX_ENTRY_SIZE);
+		return index.getInt(relativeOffset * INDEX_ENTRY_SIZE) - start == HEADER_SIZE + TOMBSTONE_SIZE;
+	}
+
+	ByteBuffer record(int relativeOffset) {
+		int start = relativeOffset == 0 ? 0 : index.getInt((relativeOffset - 1) * INDEX_ENTRY_SIZE);
+		int end = index.getInt(relativeOffset * INDEX_ENTRY_SIZE);
+		return payload(start, end);
+	}
+
+	long timestamp(int relativeOffset) {
+		int start = relativeOffset == 0 ? 0 : index.getInt((relativeOffset - 1) * INDEX_ENTRY_SIZE);
+		return log.getLong(start + HEADER_SIZE);
+	}
+
+	LogSegment compact(IntPredicate retain) throws IOException {
+		int first = 0;
+		while (first < entries - 1 && !retained(first, retain)) {
+			first++;
+		}
+		int last = entries - 1;
+		while (last > first && !retained(last, retain)) {
+			last--;
+		}
+		long compactedBaseOffset = baseOffset + first;
+		File compactedLog = logFile(directory, compactedBaseOffset, COMPACTED_SUFFIX);
+		File compactedIndex = indexFile(directory, compactedBaseOffset, COMPACTED_SUFFIX);
+		ByteBuffer positions = ByteBuffer.allocate((last - first + 1) * INDEX_ENTRY_SIZE);
+		try (FileOutputStream logStream = new FileOutputStream(compactedLog);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(logStream, 65536))) {
+			CRC32 crc = new CRC32();
+			int position = 0;
+			for (int i = first; i <= last; i++) {
+				ByteBuffer payload = record(i);
+				if (!retained(i, retain)) {
+					payload = ByteBuffer.allocate(TOMBSTONE_SIZE).putLong(0, payload.getLong(payload.position()));
+				}
+				byte[] bytes = new byte[payload.remaining()];
+				payload.get(bytes);
+				crc.reset();
+				crc.update(bytes);
+				output.writeInt(bytes.length);
+				output.writeInt((int) crc.getValue());
+				output.write(bytes);
+				position += HEADER_SIZE + bytes.length;
+				positions.putInt(position);
+			}
+			output.flush();
+			logStream.getFD().sync();
+		}
+		try (FileOutputStream indexStream = new FileOutputStream(compactedIndex)) {
+			indexStream.write(positions.array());
+			indexStream.getFD().sync();
+		}
+		Files.deleteIfExists(new File(directory, format("%020d%s", compactedBaseOffset, SegmentIndex.SUFFIX)).toPath());
+		Files.move(compactedLog.toPath(), logFile(directory, compactedBaseOffset, "").toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		Files.move(compactedIndex.toPath(), indexFile(directory, compactedBaseOffset, "").toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		LogSegment compacted = open(directory, compactedBaseOffset);
+		compacted.load();
+		return compacted;
+	}
+
+	private boolean retained(int relativeOffset, IntPredicate retain) {
+		return !isTombstone(relativeOffset) && retain.test(relativeOffset);
+	}
+
+	File file(String suffix) {
+		return new File(directory, format("%020d%s", baseOffset, suffix));
+	}
+
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(logFile(directory, baseOffset, "").toPath());
+		Files.deleteIfExists(indexFile(directory, baseOffset, "").toPath());
+		Files.deleteIfExists(file(SegmentIndex.SUFFIX).toPath());
+	}
+
+	void flush() {
+		log.force();
+		index.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		logFile.close();
+		indexFile.close();
+	}
+
+	private ByteBuffer payload(int start, int end) {
+		ByteBuffer buffer = log.duplicate();
+		buffer.limit(end);
+		buffer.position(start + HEADER_SIZE);
+		return buffer;
+	}
+}
@@ -0,0 +1,41 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.Arrays;
+
+class OffsetList {
+	private volatile long[] offsets = new long[16];
+	private volatile int size;
+
+	void add(long offset) {
+		long[] current = offsets;
+		if (size == current.length) {
+			current = Arrays.copyOf(current, size * 2);
+			offsets = current;
+		}
+		current[size] = offset;
+		size = size + 1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	long get(int index) {
+		return offsets[index];
+	}
+
+	int lowerBound(long offset, int size) {
+		long[] current = offsets;
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (current[middle] < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,74 @@
+package no.lundesgaard.ci.events.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventType;
+
+class Retention implements Predicate<Event> {
+	private final Map<String, EventType> policies;
+	private final long now;
+	private final Map<String, Long> countCutoffs = new HashMap<>();
+	private final Map<String, Set<List<String>>> latestKeys = new HashMap<>();
+
+	Retention(Map<String, EventType> policies, long now) {
+		this.policies = policies;
+		this.now = now;
+		policies.values().stream()
+				.filter(EventType::isKeepLatestPerValue)
+				.forEach(eventType -> latestKeys.put(eventType.getName(), new HashSet<>()));
+	}
+
+	static Map<String, EventType> policies(Collection<EventType> eventTypes) {
+		Map<String, EventType> policies = new HashMap<>();
+		eventTypes.stream().filter(EventType::hasRetention).forEach(eventType -> policies.put(eventType.getName(), eventType));
+		return policies;
+	}
+
+	void limitCount(String type, long firstRetainedOffset) {
+		countCutoffs.put(type, firstRetainedOffset);
+	}
+
+	void seen(Event event) {
+		Set<List<String>> keys = latestKeys.get(event.getType());
+		if (keys != null) {
+			keys.add(key(event));
+		}
+	}
+
+	@Override
+	public boolean test(Event event) {
+		EventType eventType = policies.get(event.getType());
+		if (eventType == null) {
+			return true;
+		}
+		if (eventType.getMaxAge() != null && event.getCreatedAt().toEpochMilli() < now - eventType.getMaxAge()) {
+			return false;
+		}
+		Long countCutoff = countCutoffs.get(event.getType());
+		if (countCutoff != null && event.getOffset() < countCutoff) {
+			return false;
+		}
+		Set<List<String>> keys = latestKeys.get(event.getType());
+		return keys == null || keys.add(key(event));
+	}
+
+	private List<String> key(Event event) {
+		List<String> key = new ArrayList<>();
+		key.add(event.getValue());
+		List<String> keyAttributes = policies.get(event.getType()).getKeyAttributes();
+		if (keyAttributes != null) {
+			for (String keyAttribute : keyAttributes) {
+				key.add(event.getAttributes() == null ? null : event.getAttributes().get(keyAttribute));
+			}
+		}
+		return key;
+	}
+}
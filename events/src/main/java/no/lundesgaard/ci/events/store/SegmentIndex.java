@@ -0,0 +1,135 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import no.lundesgaard.ci.events.model.Event;
+
+class SegmentIndex {
+	static final String SUFFIX = ".types";
+	private static final int FORMAT_VERSION = 1;
+
+	private final int entries;
+	private final List<String> types;
+	private final int[] relativeOffsets;
+	private final int[] typeNumbers;
+	private final String[] legacyIds;
+	private final int size;
+
+	private SegmentIndex(int entries, List<String> types, int[] relativeOffsets, int[] typeNumbers, String[] legacyIds, int size) {
+		this.entries = entries;
+		this.types = types;
+		this.relativeOffsets = relativeOffsets;
+		this.typeNumbers = typeNumbers;
+		this.legacyIds = legacyIds;
+		this.size = size;
+	}
+
+	static SegmentIndex build(LogSegment segment) {
+		int entries = segment.entries();
+		List<String> types = new ArrayList<>();
+		Map<String, Integer> typeNumberMap = new HashMap<>();
+		int[] relativeOffsets = new int[entries];
+		int[] typeNumbers = new int[entries];
+		String[] legacyIds = new String[entries];
+		int size = 0;
+		for (int i = 0; i < entries; i++) {
+			if (segment.isTombstone(i)) {
+				continue;
+			}
+			Event event = EventCodec.decode(segment.baseOffset() + i, segment.record(i));
+			relativeOffsets[size] = i;
+			typeNumbers[size] = event.getType() == null ? -1 : typeNumberMap.computeIfAbsent(event.getType(), type -> {
+				types.add(type);
+				return types.size() - 1;
+			});
+			legacyIds[size] = EventIds.offset(event.getId()) < 0 ? event.getId() : null;
+			size++;
+		}
+		return new SegmentIndex(entries, types, relativeOffsets, typeNumbers, legacyIds, size);
+	}
+
+	static SegmentIndex read(LogSegment segment) throws IOException {
+		File file = segment.file(SUFFIX);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+			if (input.readInt() != FORMAT_VERSION || input.readInt() != segment.entries()) {
+				return null;
+			}
+			List<String> types = new ArrayList<>();
+			int typeCount = input.readInt();
+			for (int i = 0; i < typeCount; i++) {
+				types.add(input.readUTF());
+			}
+			int size = input.readInt();
+			int[] relativeOffsets = new int[size];
+			int[] typeNumbers = new int[size];
+			String[] legacyIds = new String[size];
+			for (int i = 0; i < size; i++) {
+				relativeOffsets[i] = input.readInt();
+				typeNumbers[i] = input.readInt();
+				legacyIds[i] = input.readBoolean() ? input.readUTF() : null;
+			}
+			return new SegmentIndex(segment.entries(), types, relativeOffsets, typeNumbers, legacyIds, size);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	void write(LogSegment segment) throws IOException {
+		File file = segment.file(SUFFIX);
+		File temporaryFile = segment.file(SUFFIX + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temporaryFile);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 65536))) {
+			output.writeInt(FORMAT_VERSION);
+			output.writeInt(entries);
+			output.writeInt(types.size());
+			for (String type : types) {
+				output.writeUTF(type);
+			}
+			output.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				output.writeInt(relativeOffsets[i]);
+				output.writeInt(typeNumbers[i]);
+				output.writeBoolean(legacyIds[i] != null);
+				if (legacyIds[i] != null) {
+					output.writeUTF(legacyIds[i]);
+				}
+			}
+			output.flush();
+			stream.getFD().sync();
+		}
+		Files.move(temporaryFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+
+	int size() {
+		return size;
+	}
+
+	void forEach(long baseOffset, Indexer indexer) {
+		for (int i = 0; i < size; i++) {
+			indexer.index(baseOffset + relativeOffsets[i], typeNumbers[i] < 0 ? null : types.get(typeNumbers[i]), legacyIds[i]);
+		}
+	}
+
+	interface Indexer {
+		void index(long offset, String type, String legacyId);
+	}
+}
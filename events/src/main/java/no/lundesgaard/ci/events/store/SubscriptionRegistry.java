@@ -0,0 +1,81 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import no.lundesgaard.ci.events.model.Subscription;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Component
+public class SubscriptionRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionRegistry.class);
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${services.events.subscriptions.file:/events/subscriptions.json}")
+	private String file;
+
+	private final Map<String, Subscription> subscriptionMap = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void load() throws IOException {
+		File subscriptionsFile = new File(file);
+		if (!file.isEmpty() && subscriptionsFile.isFile()) {
+			List<Subscription> subscriptions = objectMapper.readValue(subscriptionsFile, new TypeReference<List<Subscription>>() {
+			});
+			subscriptions.forEach(subscription -> subscriptionMap.put(subscription.getId(), subscription));
+			LOGGER.info("Loaded {} subscriptions from <{}>", subscriptions.size(), subscriptionsFile);
+		}
+	}
+
+	public Collection<Subscription> findAll() {
+		return subscriptionMap.values();
+	}
+
+	public Subscription findById(String id) {
+		return subscriptionMap.get(id);
+	}
+
+	public void save(Subscription subscription) {
+		subscriptionMap.put(subscription.getId(), subscription);
+		flush();
+	}
+
+	public Subscription delete(String id) {
+		Subscription subscription = subscriptionMap.remove(id);
+		if (subscription != null) {
+			flush();
+		}
+		return subscription;
+	}
+
+	public synchronized void flush() {
+		if (file.isEmpty()) {
+			return;
+		}
+		File subscriptionsFile = new File(file);
+		try {
+			JsonFiles.write(objectMapper, subscriptionsFile, new ArrayList<>(subscriptionMap.values()));
+		} catch (IOException e) {
+			throw new EventStoreException(format("Failed to save subscriptions to <%s>: %s", subscriptionsFile, e.getMessage()), e);
+		}
+	}
+}
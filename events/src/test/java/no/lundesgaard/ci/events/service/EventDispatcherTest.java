@@ -0,0 +1,93 @@
+package no.lundesgaard.ci.events.service;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+import no.lundesgaard.ci.events.assembler.EventResourceAssembler;
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.store.EventStore;
+import no.lundesgaard.ci.events.store.InMemoryEventStore;
+import no.lundesgaard.ci.events.store.SubscriptionRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+public class EventDispatcherTest {
+	private static final long SLOW_DELIVERY = 1000;
+
+	private final EventStore eventStore = new InMemoryEventStore();
+	private final EventDispatcher eventDispatcher = new EventDispatcher();
+
+	@Before
+	public void setUp() {
+		SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+		ReflectionTestUtils.setField(subscriptionRegistry, "file", "");
+		ReflectionTestUtils.setField(eventDispatcher, "eventStore", eventStore);
+		ReflectionTestUtils.setField(eventDispatcher, "subscriptionRegistry", subscriptionRegistry);
+		ReflectionTestUtils.setField(eventDispatcher, "eventResourceAssembler", new EventResourceAssembler());
+		ReflectionTestUtils.setField(eventDispatcher, "workerCount", 1);
+		ReflectionTestUtils.setField(eventDispatcher, "slowWorkerCount", 1);
+		ReflectionTestUtils.setField(eventDispatcher, "slowDeliveryThreshold", 100L);
+		ReflectionTestUtils.setField(eventDispatcher, "queueCapacity", 100);
+		ReflectionTestUtils.setField(eventDispatcher, "batchSize", 10);
+		ReflectionTestUtils.setField(eventDispatcher, "maxConnections", 4);
+		ReflectionTestUtils.setField(eventDispatcher, "maxConnectionsPerSubscriber", 1);
+		ReflectionTestUtils.setField(eventDispatcher, "minRetryDelay", 10L);
+		ReflectionTestUtils.setField(eventDispatcher, "maxRetryDelay", 100L);
+		eventDispatcher.start();
+		ReflectionTestUtils.setField(eventDispatcher, "restTemplate", new RestTemplate() {
+			@Override
+			public <T> T postForObject(String url, Object request, Class<T> responseType, Object... uriVariables) {
+				if (url.contains("slow")) {
+					try {
+						Thread.sleep(SLOW_DELIVERY);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		eventDispatcher.stop();
+	}
+
+	@Test
+	public void slowSubscribersDoNotHoldUpOthers() throws InterruptedException {
+		String slow1 = eventDispatcher.subscribe("http://slow-1/", null, 0L).getId();
+		String slow2 = eventDispatcher.subscribe("http://slow-2/", null, 0L).getId();
+		String fast = eventDispatcher.subscribe("http://fast/", null, 0L).getId();
+		append();
+		await(() -> delivered(slow1) == 1 && delivered(slow2) == 1 && delivered(fast) == 1, 10000);
+
+		append();
+
+		await(() -> delivered(fast) == 2, SLOW_DELIVERY / 2);
+		await(() -> delivered(slow1) == 2 && delivered(slow2) == 2, 10000);
+	}
+
+	private void append() {
+		eventStore.append(new Event("build", "simply-ci"));
+		eventDispatcher.eventsAppended();
+	}
+
+	private long delivered(String id) {
+		return eventDispatcher.status(id).getDelivered();
+	}
+
+	private void await(BooleanSupplier condition, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
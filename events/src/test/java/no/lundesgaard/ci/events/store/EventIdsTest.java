@@ -0,0 +1,58 @@
+package no.lundesgaard.ci.events.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EventIdsTest {
+	private static final long TIMESTAMP = 1458000000000L;
+
+	@Test
+	public void offsetIsDecodedFromEncodedId() {
+		long[] offsets = {0, 1, 31, 32, 1023, 1L << 20, (1L << 36) - 1};
+		for (long offset : offsets) {
+			assertEquals(offset, EventIds.offset(EventIds.encode(TIMESTAMP, offset)));
+		}
+	}
+
+	@Test
+	public void offsetIsDecodedAcrossTimestamps() {
+		long[] timestamps = {0, 1, TIMESTAMP, 4102444800000L, (1L << 44) - 1};
+		for (long timestamp : timestamps) {
+			assertEquals(123456789L, EventIds.offset(EventIds.encode(timestamp, 123456789L)));
+		}
+	}
+
+	@Test
+	public void idIsSixteenCharactersFromTheAlphabet() {
+		String id = EventIds.encode(TIMESTAMP, 42);
+		assertEquals(16, id.length());
+		assertTrue(id, id.matches("[0-9A-HJKMNP-TV-Z]{16}"));
+	}
+
+	@Test
+	public void idsSortByTimestampThenOffset() {
+		String first = EventIds.encode(TIMESTAMP, 1000);
+		String second = EventIds.encode(TIMESTAMP + 1, 0);
+		String third = EventIds.encode(TIMESTAMP + 1, 1);
+		assertTrue(first.compareTo(second) < 0);
+		assertTrue(second.compareTo(third) < 0);
+	}
+
+	@Test
+	public void offsetIsDecodedFromLowerCaseId() {
+		String id = EventIds.encode(TIMESTAMP, 987654);
+		assertEquals(987654, EventIds.offset(id.toLowerCase()));
+	}
+
+	@Test
+	public void invalidIdsHaveNoOffset() {
+		assertEquals(-1, EventIds.offset(null));
+		assertEquals(-1, EventIds.offset(""));
+		assertEquals(-1, EventIds.offset("0123456789ABCDE"));
+		assertEquals(-1, EventIds.offset("0123456789ABCDEU"));
+		assertEquals(-1, EventIds.offset("0123456789ABCDE\u00e9"));
+		assertEquals(-1, EventIds.offset("8b3c3d1e-6a3f-4c1a-9f6e-2d5b7c9a1e4f"));
+	}
+}
@@ -0,0 +1,290 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.model.EventType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class EventLogTest {
+	private static final int SEGMENT_ENTRIES = 10;
+	private static final long DAY = 86400000L;
+	private static final EventType REPOSITORY_UPDATE = new EventType("repository-update", null, null, true, singletonList("ref"));
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File directory;
+	private EventLog eventLog;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = temporaryFolder.newFolder("events");
+		eventLog = open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		eventLog.close();
+	}
+
+	@Test
+	public void appendAssignsIdsAndIgnoresSuppliedOnes() throws IOException {
+		Event event = new Event("build", "simply-ci", null);
+		String suppliedId = EventIds.encode(0, 0);
+		event.setId(suppliedId);
+
+		Event appended = eventLog.append(event);
+
+		assertFalse(suppliedId.equals(appended.getId()));
+		assertEquals(0, EventIds.offset(appended.getId()));
+		assertNull(eventLog.findById(suppliedId));
+		reopen();
+		assertEquals(0, eventLog.findById(appended.getId()).getOffset());
+	}
+
+	@Test
+	public void compactKeepsLatestEventPerValueAndKeyAttributes() throws IOException {
+		for (int i = 0; i < 35; i++) {
+			appendUpdate(i == 25 || i == 27 ? "refs/heads/feature-" + i : i % 2 == 0 ? "refs/heads/master" : "refs/heads/develop");
+		}
+
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+
+		assertEquals(Arrays.asList(25L, 27L, 30L, 31L, 32L, 33L, 34L), offsets(eventLog));
+		assertEquals(7, eventLog.count());
+		assertEquals(35, eventLog.endOffset());
+		assertNull(eventLog.read(26));
+		assertEquals("refs/heads/feature-25", eventLog.read(25).getAttributes().get("ref"));
+	}
+
+	@Test
+	public void compactDeletesEmptySegmentsAndRebasesPartlyCompactedOnes() throws IOException {
+		for (int i = 0; i < 35; i++) {
+			appendUpdate(i == 25 || i == 27 ? "refs/heads/feature-" + i : "refs/heads/master");
+		}
+
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+
+		assertEquals(Arrays.asList(segmentFile(25, ".index"), segmentFile(25, ".keys"), segmentFile(25, ".log"), segmentFile(25, ".types"), segmentFile(30, ".index"), segmentFile(30, ".log")), files());
+	}
+
+	@Test
+	public void compactedLogIsRestoredOnReopen() throws IOException {
+		for (int i = 0; i < 35; i++) {
+			appendUpdate(i == 25 || i == 27 ? "refs/heads/feature-" + i : "refs/heads/master");
+		}
+		Event event = eventLog.read(27);
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+
+		reopen();
+
+		assertEquals(Arrays.asList(25L, 27L, 30L, 31L, 32L, 33L, 34L), offsets(eventLog));
+		assertEquals(7, eventLog.count());
+		assertEquals(35, eventLog.endOffset());
+		assertNotNull(eventLog.findById(event.getId()));
+		assertEquals(7, eventLog.find(new EventQuery("repository-update", null, null, null, -1L, 100)).size());
+		assertEquals(35, eventLog.append(new Event("repository-update", "simply-ci", null)).getOffset());
+	}
+
+	@Test
+	public void compactRemovesEventsBeyondMaxCount() throws IOException {
+		for (int i = 0; i < 25; i++) {
+			eventLog.append(new Event(i % 5 == 0 ? "build" : "log", "simply-ci", null));
+		}
+
+		eventLog.compact(singletonList(new EventType("log", null, 0, false, null)));
+
+		assertEquals(Arrays.asList(0L, 5L, 10L, 15L, 20L, 21L, 22L, 23L, 24L), offsets(eventLog));
+		assertTrue(eventLog.find(new EventQuery("log", null, null, null, 19L, 100)).stream().allMatch(event -> event.getOffset() >= 20));
+	}
+
+	@Test
+	public void untypedFindPagesAcrossCompactedRanges() throws IOException {
+		for (int i = 0; i < 35; i++) {
+			appendUpdate(i == 5 || i == 25 || i == 27 ? "refs/heads/feature-" + i : "refs/heads/master");
+		}
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+
+		assertEquals(Arrays.asList(5L, 25L, 27L), eventLog.find(new EventQuery(null, null, null, null, -1L, 3)).stream().map(Event::getOffset).collect(toList()));
+		assertEquals(Arrays.asList(30L, 31L), eventLog.find(new EventQuery(null, null, null, null, 27L, 2)).stream().map(Event::getOffset).collect(toList()));
+		assertEquals(Arrays.asList(31L, 30L, 27L), eventLog.find(new EventQuery(null, null, null, 32L, null, 3)).stream().map(Event::getOffset).collect(toList()));
+		assertEquals(Arrays.asList(25L, 5L), eventLog.find(new EventQuery(null, null, null, 27L, null, 10)).stream().map(Event::getOffset).collect(toList()));
+	}
+
+	@Test
+	public void idempotencyKeysOutliveCompactionAndReopen() throws IOException {
+		String[] ids = new String[25];
+		for (int i = 0; i < 25; i++) {
+			Event event = new Event("repository-update", "simply-ci", singletonMap("ref", "refs/heads/master"));
+			event.setIdempotencyKey("key-" + i);
+			ids[i] = eventLog.append(event).getId();
+		}
+		eventLog.flush();
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+		assertEquals(Arrays.asList(20L, 21L, 22L, 23L, 24L), offsets(eventLog));
+
+		reopen();
+
+		long since = System.currentTimeMillis() - DAY;
+		for (int i = 0; i < 25; i++) {
+			assertEquals(ids[i], eventLog.findIdByIdempotencyKey("key-" + i, since));
+		}
+		assertNull(eventLog.findIdByIdempotencyKey("key-25", since));
+	}
+
+	@Test
+	public void expiredIdempotencyKeysAreForgotten() throws IOException {
+		Instant expired = Instant.now().minusMillis(2 * DAY);
+		for (int i = 0; i < 15; i++) {
+			Event event = new Event("build", "simply-ci", null);
+			event.setCreatedAt(expired);
+			event.setIdempotencyKey("key-" + i);
+			eventLog.append(event);
+		}
+		eventLog.flush();
+		assertTrue(new File(directory, segmentFile(0, ".keys")).exists());
+
+		eventLog.compact(singletonList(new EventType("build", DAY, null, false, null)));
+
+		assertFalse(new File(directory, segmentFile(0, ".keys")).exists());
+		assertNull(eventLog.findIdByIdempotencyKey("key-0", 0));
+		reopen();
+		assertNull(eventLog.findIdByIdempotencyKey("key-0", 0));
+	}
+
+	@Test
+	public void sealedSegmentIndexesArePersistedAndRebuiltWhenMissing() throws IOException {
+		for (int i = 0; i < 25; i++) {
+			eventLog.append(new Event(i % 5 == 0 ? "build" : "log", "simply-ci", null));
+		}
+		eventLog.flush();
+		File segmentIndex = new File(directory, segmentFile(10, ".types"));
+		assertTrue(new File(directory, segmentFile(0, ".types")).exists());
+		assertTrue(segmentIndex.exists());
+		assertFalse(new File(directory, segmentFile(20, ".types")).exists());
+		Files.delete(segmentIndex.toPath());
+
+		reopen();
+
+		assertTrue(segmentIndex.exists());
+		assertEquals(Arrays.asList(0L, 5L, 10L, 15L, 20L), typeOffsets("build"));
+		assertEquals(20, typeOffsets("log").size());
+	}
+
+	@Test
+	public void openDiscardsUnfinishedCompaction() throws IOException {
+		for (int i = 0; i < 25; i++) {
+			appendUpdate("refs/heads/master");
+		}
+		eventLog.close();
+		Files.write(new File(directory, segmentFile(10, ".log.compacted")).toPath(), new byte[16]);
+		Files.write(new File(directory, segmentFile(10, ".index.compacted")).toPath(), new byte[4]);
+
+		eventLog = open();
+
+		assertEquals(25, offsets(eventLog).size());
+		assertFalse(new File(directory, segmentFile(10, ".log.compacted")).exists());
+		assertFalse(new File(directory, segmentFile(10, ".index.compacted")).exists());
+	}
+
+	@Test
+	public void openCompletesInterruptedIndexRename() throws IOException {
+		for (int i = 0; i < 25; i++) {
+			appendUpdate(i == 5 ? "refs/heads/feature" : "refs/heads/master");
+		}
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+		eventLog.close();
+		File index = new File(directory, segmentFile(5, ".index"));
+		Files.move(index.toPath(), new File(directory, segmentFile(5, ".index.compacted")).toPath());
+
+		eventLog = open();
+
+		assertTrue(index.exists());
+		assertEquals(Arrays.asList(5L, 20L, 21L, 22L, 23L, 24L), offsets(eventLog));
+		assertEquals("refs/heads/feature", eventLog.read(5).getAttributes().get("ref"));
+	}
+
+	@Test
+	public void openDeletesSegmentSupersededByRebasedSegment() throws IOException {
+		for (int i = 0; i < 25; i++) {
+			appendUpdate(i == 5 ? "refs/heads/feature" : "refs/heads/master");
+		}
+		eventLog.flush();
+		File log = new File(directory, segmentFile(0, ".log"));
+		File index = new File(directory, segmentFile(0, ".index"));
+		byte[] logBytes = Files.readAllBytes(log.toPath());
+		byte[] indexBytes = Files.readAllBytes(index.toPath());
+		eventLog.compact(singletonList(REPOSITORY_UPDATE));
+		eventLog.close();
+		Files.write(log.toPath(), logBytes);
+		Files.write(index.toPath(), indexBytes);
+
+		eventLog = open();
+
+		assertFalse(log.exists());
+		assertFalse(index.exists());
+		assertEquals(Arrays.asList(5L, 20L, 21L, 22L, 23L, 24L), offsets(eventLog));
+	}
+
+	private EventLog open() throws IOException {
+		EventLog eventLog = new EventLog();
+		ReflectionTestUtils.setField(eventLog, "directory", directory.getPath());
+		ReflectionTestUtils.setField(eventLog, "segmentBytes", 4096);
+		ReflectionTestUtils.setField(eventLog, "segmentEntries", SEGMENT_ENTRIES);
+		ReflectionTestUtils.setField(eventLog, "keyWindow", DAY);
+		eventLog.open();
+		return eventLog;
+	}
+
+	private void reopen() throws IOException {
+		eventLog.close();
+		eventLog = open();
+	}
+
+	private void appendUpdate(String ref) {
+		Map<String, String> attributes = new HashMap<>();
+		attributes.put("ref", ref);
+		eventLog.append(new Event("repository-update", "simply-ci", attributes));
+	}
+
+	private List<Long> offsets(EventLog eventLog) {
+		return eventLog.find(new EventQuery(null, null, null, null, -1L, 100)).stream().map(Event::getOffset).collect(toList());
+	}
+
+	private List<Long> typeOffsets(String type) {
+		return eventLog.find(new EventQuery(type, null, null, null, -1L, 100)).stream().map(Event::getOffset).collect(toList());
+	}
+
+	private List<String> files() {
+		return Arrays.stream(directory.list()).sorted().collect(toList());
+	}
+
+	private String segmentFile(long baseOffset, String suffix) {
+		return format("%020d%s", baseOffset, suffix);
+	}
+}
@@ -0,0 +1,74 @@
+package no.lundesgaard.ci.events.store;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import no.lundesgaard.ci.events.model.Event;
+import no.lundesgaard.ci.events.model.EventQuery;
+import no.lundesgaard.ci.events.model.EventType;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class InMemoryEventStoreTest {
+	private static final long DAY = 86400000L;
+
+	private final InMemoryEventStore eventStore = new InMemoryEventStore();
+
+	@Test
+	public void compactRemovesExpiredEventsAndKeepsUntypedOnes() {
+		Instant expired = Instant.now().minusMillis(2 * DAY);
+		append("build", expired);
+		append(null, expired);
+		append("build", null);
+		append(null, null);
+
+		eventStore.compact(Arrays.asList(new EventType("build", DAY, null, false, null), new EventType("log", DAY, null, false, null)));
+
+		assertEquals(Arrays.asList(1L, 2L, 3L), offsets(null));
+		assertEquals(Arrays.asList(2L), offsets("build"));
+		assertNull(eventStore.read(0));
+		assertEquals(3, eventStore.count());
+		assertEquals(4, eventStore.endOffset());
+	}
+
+	@Test
+	public void compactRemovesEventsBeyondMaxCount() {
+		for (int i = 0; i < 5; i++) {
+			append(i % 2 == 0 ? "build" : null, null);
+		}
+
+		eventStore.compact(Arrays.asList(new EventType("build", null, 1, false, null)));
+
+		assertEquals(Arrays.asList(1L, 3L, 4L), offsets(null));
+		assertEquals(Arrays.asList(4L), offsets("build"));
+	}
+
+	@Test
+	public void idempotencyKeysOutliveCompaction() {
+		ReflectionTestUtils.setField(eventStore, "keyWindow", DAY);
+		Event event = new Event("build", "simply-ci");
+		event.setIdempotencyKey("key");
+		String id = eventStore.append(event).getId();
+
+		eventStore.compact(Arrays.asList(new EventType("build", null, 0, false, null)));
+
+		assertNull(eventStore.read(0));
+		assertEquals(id, eventStore.findIdByIdempotencyKey("key", System.currentTimeMillis() - DAY));
+	}
+
+	private void append(String type, Instant createdAt) {
+		Event event = new Event(type, "simply-ci");
+		event.setCreatedAt(createdAt);
+		eventStore.append(event);
+	}
+
+	private List<Long> offsets(String type) {
+		return eventStore.find(new EventQuery(type, null, null, null, -1L, 100)).stream().map(Event::getOffset).collect(toList());
+	}
+}
@@ -0,0 +1,30 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import static java.util.stream.Collectors.toList;
+
+import no.lundesgaard.ci.repositories.model.ChangedPath;
+import no.lundesgaard.ci.repositories.model.CommitChanges;
+import no.lundesgaard.ci.repositories.resource.ChangeResource;
+import no.lundesgaard.ci.repositories.resource.ChangesResource;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class ChangesResourceAssembler {
+	public ChangesResource toResource(CommitChanges commitChanges) {
+		return new ChangesResource(
+				commitChanges.getCommitId(),
+				commitChanges.getLinesAdded(),
+				commitChanges.getLinesDeleted(),
+				commitChanges.getChangedPaths().stream().map(this::changeResource).collect(toList()));
+	}
+
+	private ChangeResource changeResource(ChangedPath changedPath) {
+		return new ChangeResource(
+				changedPath.getChangeType(),
+				changedPath.getOldPath(),
+				changedPath.getNewPath(),
+				changedPath.getLinesAdded(),
+				changedPath.getLinesDeleted());
+	}
+}
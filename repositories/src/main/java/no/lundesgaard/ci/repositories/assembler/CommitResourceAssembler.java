@@ -1,7 +1,14 @@
 package no.lundesgaard.ci.repositories.assembler;
 
+import static no.lundesgaard.ci.repositories.model.CommitField.AUTHOR;
+import static no.lundesgaard.ci.repositories.model.CommitField.COMMIT_DATE_TIME;
+import static no.lundesgaard.ci.repositories.model.CommitField.FULL_MESSAGE;
+
+import java.util.Set;
+
 import no.lundesgaard.ci.repositories.model.Author;
 import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitField;
 import no.lundesgaard.ci.repositories.resource.AuthorResource;
 import no.lundesgaard.ci.repositories.resource.CommitResource;
 
@@ -10,10 +17,21 @@ import org.springframework.stereotype.Component;
 @Component
 public class CommitResourceAssembler {
 	public CommitResource toResource(Commit commit) {
-		return new CommitResource(commit.getCommitId(), authorResource(commit.getAuthor()), commit.getCommitDateTime(), commit.getFullMessage());
+		return toResource(commit, CommitField.ALL);
+	}
+
+	public CommitResource toResource(Commit commit, Set<CommitField> fields) {
+		return new CommitResource(
+				commit.getCommitId(),
+				fields.contains(AUTHOR) ? authorResource(commit.getAuthor()) : null,
+				fields.contains(COMMIT_DATE_TIME) ? commit.getCommitDateTime() : null,
+				fields.contains(FULL_MESSAGE) ? commit.getFullMessage() : null);
 	}
 
 	private AuthorResource authorResource(Author author) {
+		if (author == null) {
+			return null;
+		}
 		return new AuthorResource(author.getName(), author.getEmail());
 	}
 }
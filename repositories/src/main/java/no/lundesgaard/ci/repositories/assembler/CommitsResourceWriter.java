@@ -0,0 +1,89 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitLogQuery;
+import no.lundesgaard.ci.repositories.resource.CommitResource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+@Component
+public class CommitsResourceWriter {
+	private static final int FLUSH_INTERVAL = 100;
+
+	@Autowired
+	@Qualifier("_halObjectMapper")
+	private ObjectMapper objectMapper;
+	@Autowired
+	private CommitResourceAssembler commitResourceAssembler;
+
+	public void write(OutputStream outputStream, Consumer<Consumer<Commit>> commits, CommitLogQuery query, UriComponentsBuilder nextLink, Link... links) throws IOException {
+		ObjectWriter commitWriter = objectMapper.writerFor(CommitResource.class).without(FLUSH_AFTER_WRITE_VALUE);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			if (objectMapper.isEnabled(INDENT_OUTPUT)) {
+				generator.useDefaultPrettyPrinter();
+			}
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("commits");
+			generator.flush();
+			CommitCounter counter = new CommitCounter();
+			try {
+				commits.accept(commit -> {
+					try {
+						commitWriter.writeValue(generator, commitResourceAssembler.toResource(commit, query.getFields()));
+						if (counter.increment(commit) % FLUSH_INTERVAL == 0) {
+							generator.flush();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			generator.writeEndArray();
+			generator.writeObjectFieldStart("_links");
+			for (Link link : links) {
+				writeLink(generator, link.getRel(), link.getHref());
+			}
+			if (query.getLimit() != null && counter.count == query.getLimit()) {
+				writeLink(generator, "next", ((UriComponentsBuilder) nextLink.clone()).replaceQueryParam("after", counter.lastCommitId).build().toUriString());
+			}
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+	}
+
+	private void writeLink(JsonGenerator generator, String rel, String href) throws IOException {
+		generator.writeObjectFieldStart(rel);
+		generator.writeStringField("href", href);
+		generator.writeEndObject();
+	}
+
+	private static class CommitCounter {
+		private int count;
+		private String lastCommitId;
+
+		private int increment(Commit commit) {
+			lastCommitId = commit.getCommitId();
+			return ++count;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import no.lundesgaard.ci.repositories.model.OutboxStatistics;
+import no.lundesgaard.ci.repositories.resource.OutboxResource;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class OutboxResourceAssembler {
+	public OutboxResource toResource(OutboxStatistics statistics) {
+		return new OutboxResource(
+				statistics.getPending(),
+				statistics.getCapacity(),
+				statistics.getDelivered(),
+				statistics.getDropped(),
+				statistics.getFailures(),
+				statistics.getRetryDelay(),
+				statistics.getLastDelivery(),
+				statistics.getLastError(),
+				statistics.getWriteErrors());
+	}
+}
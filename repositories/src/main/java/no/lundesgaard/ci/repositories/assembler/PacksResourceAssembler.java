@@ -0,0 +1,22 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import no.lundesgaard.ci.repositories.model.PackStatistics;
+import no.lundesgaard.ci.repositories.resource.PacksResource;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class PacksResourceAssembler {
+	public PacksResource toResource(PackStatistics statistics) {
+		return new PacksResource(
+				statistics.getLooseObjects(),
+				statistics.getSizeOfLooseObjects(),
+				statistics.getPackFiles(),
+				statistics.getPackedObjects(),
+				statistics.getSizeOfPackedObjects(),
+				statistics.getLooseRefs(),
+				statistics.getPackedRefs(),
+				statistics.getLastMaintenance(),
+				statistics.getLastMaintenanceDuration());
+	}
+}
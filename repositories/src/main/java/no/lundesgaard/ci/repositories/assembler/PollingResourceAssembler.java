@@ -0,0 +1,26 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import static java.util.stream.Collectors.toList;
+
+import no.lundesgaard.ci.repositories.model.PollingStatistics;
+import no.lundesgaard.ci.repositories.model.RepositoryPollingStatistics;
+import no.lundesgaard.ci.repositories.resource.PollingResource;
+import no.lundesgaard.ci.repositories.resource.RepositoryPollingResource;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class PollingResourceAssembler {
+	public PollingResource toResource(PollingStatistics statistics) {
+		return new PollingResource(
+				statistics.getWorkers(),
+				statistics.getActivePolls(),
+				statistics.getQueueDepth(),
+				statistics.getMaxLag(),
+				statistics.getRepositories().stream().map(this::repositoryPollingResource).collect(toList()));
+	}
+
+	private RepositoryPollingResource repositoryPollingResource(RepositoryPollingStatistics statistics) {
+		return new RepositoryPollingResource(statistics.getName(), statistics.getRemote(), statistics.getInterval(), statistics.getLag());
+	}
+}
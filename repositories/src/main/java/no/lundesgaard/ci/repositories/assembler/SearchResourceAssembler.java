@@ -0,0 +1,31 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+
+import java.util.List;
+
+import no.lundesgaard.ci.repositories.controller.RepositoriesController;
+import no.lundesgaard.ci.repositories.model.CommitSearchHit;
+import no.lundesgaard.ci.repositories.resource.CommitResource;
+import no.lundesgaard.ci.repositories.resource.SearchResource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SearchResourceAssembler {
+	@Autowired
+	private CommitResourceAssembler commitResourceAssembler;
+
+	public SearchResource toResource(List<CommitSearchHit> hits) {
+		return new SearchResource(hits.stream().map(this::commitResource).collect(toList()));
+	}
+
+	private CommitResource commitResource(CommitSearchHit hit) {
+		CommitResource resource = commitResourceAssembler.toResource(hit.getCommit());
+		resource.add(linkTo(RepositoriesController.class).slash(hit.getRepositoryName()).withRel("repository"));
+		resource.add(linkTo(RepositoriesController.class).slash(hit.getRepositoryName()).slash("commits").slash(hit.getCommit().getCommitId()).slash("changes").withRel("changes"));
+		return resource;
+	}
+}
@@ -0,0 +1,14 @@
+package no.lundesgaard.ci.repositories.assembler;
+
+import java.io.File;
+
+import no.lundesgaard.ci.repositories.resource.WorkTreeResource;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class WorkTreeResourceAssembler {
+	public WorkTreeResource toResource(String commitId, File workTree) {
+		return new WorkTreeResource(commitId, workTree.getAbsolutePath());
+	}
+}
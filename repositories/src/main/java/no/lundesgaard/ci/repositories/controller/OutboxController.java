@@ -0,0 +1,31 @@
+package no.lundesgaard.ci.repositories.controller;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+import no.lundesgaard.ci.repositories.assembler.OutboxResourceAssembler;
+import no.lundesgaard.ci.repositories.resource.OutboxResource;
+import no.lundesgaard.ci.repositories.service.EventService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+@RequestMapping("/-/outbox")
+public class OutboxController {
+	@Autowired
+	private EventService eventService;
+	@Autowired
+	private OutboxResourceAssembler outboxResourceAssembler;
+
+	@RequestMapping(method = GET)
+	@ResponseBody
+	public OutboxResource outbox() {
+		OutboxResource resource = outboxResourceAssembler.toResource(eventService.statistics());
+		resource.add(linkTo(OutboxController.class).withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).withRel("parent"));
+		return resource;
+	}
+}
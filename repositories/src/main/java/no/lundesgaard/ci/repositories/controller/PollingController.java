@@ -0,0 +1,31 @@
+package no.lundesgaard.ci.repositories.controller;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+import no.lundesgaard.ci.repositories.assembler.PollingResourceAssembler;
+import no.lundesgaard.ci.repositories.resource.PollingResource;
+import no.lundesgaard.ci.repositories.service.RepositoryPollingScheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+@RequestMapping("/-/polling")
+public class PollingController {
+	@Autowired
+	private RepositoryPollingScheduler pollingScheduler;
+	@Autowired
+	private PollingResourceAssembler pollingResourceAssembler;
+
+	@RequestMapping(method = GET)
+	@ResponseBody
+	public PollingResource polling() {
+		PollingResource resource = pollingResourceAssembler.toResource(pollingScheduler.statistics());
+		resource.add(linkTo(PollingController.class).withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).withRel("parent"));
+		return resource;
+	}
+}
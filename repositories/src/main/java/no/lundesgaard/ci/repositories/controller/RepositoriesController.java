@@ -1,27 +1,49 @@
 package no.lundesgaard.ci.repositories.controller;
 
-import static java.util.stream.Collectors.toList;
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequest;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
 import java.util.List;
 
-import no.lundesgaard.ci.repositories.assembler.CommitResourceAssembler;
+import javax.servlet.http.HttpServletResponse;
+
+import no.lundesgaard.ci.repositories.assembler.ChangesResourceAssembler;
+import no.lundesgaard.ci.repositories.assembler.CommitsResourceWriter;
+import no.lundesgaard.ci.repositories.assembler.PacksResourceAssembler;
 import no.lundesgaard.ci.repositories.assembler.RepositoryAssembler;
 import no.lundesgaard.ci.repositories.assembler.RepositoryResourceAssembler;
-import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.assembler.SearchResourceAssembler;
+import no.lundesgaard.ci.repositories.assembler.WorkTreeResourceAssembler;
+import no.lundesgaard.ci.repositories.model.CommitChanges;
+import no.lundesgaard.ci.repositories.model.CommitLogQuery;
+import no.lundesgaard.ci.repositories.model.CommitSearchQuery;
+import no.lundesgaard.ci.repositories.model.PackStatistics;
 import no.lundesgaard.ci.repositories.model.Repository;
-import no.lundesgaard.ci.repositories.resource.CommitsResource;
+import no.lundesgaard.ci.repositories.resource.ChangesResource;
+import no.lundesgaard.ci.repositories.resource.PacksResource;
 import no.lundesgaard.ci.repositories.resource.RepositoriesResource;
 import no.lundesgaard.ci.repositories.resource.RepositoryResource;
+import no.lundesgaard.ci.repositories.resource.SearchResource;
+import no.lundesgaard.ci.repositories.resource.WorkTreeResource;
 import no.lundesgaard.ci.repositories.service.RepositoryService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.EntityLinks;
 import org.springframework.hateoas.ExposesResourceFor;
 import org.springframework.hateoas.Link;
@@ -29,10 +51,15 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @Controller
 @ExposesResourceFor(Repository.class)
@@ -47,8 +74,15 @@ public class RepositoriesController {
 	@Autowired
 	private RepositoryAssembler repositoryAssembler;
 	@Autowired
-	private CommitResourceAssembler commitResourceAssembler;
-
+	private CommitsResourceWriter commitsResourceWriter;
+	@Autowired
+	private ChangesResourceAssembler changesResourceAssembler;
+	@Autowired
+	private SearchResourceAssembler searchResourceAssembler;
+	@Autowired
+	private PacksResourceAssembler packsResourceAssembler;
+	@Autowired
+	private WorkTreeResourceAssembler workTreeResourceAssembler;
 
 	@RequestMapping(method = GET)
 	@ResponseBody
@@ -56,6 +90,7 @@ public class RepositoriesController {
 		List<String> repositories = repositoryService.findAllRepositoryNames();
 		RepositoriesResource resource = new RepositoriesResource(repositories);
 		resource.add(entityLinks.linkToCollectionResource(Repository.class).withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).slash("-").slash("search").withRel("search"));
 		resource.add(repositories.stream().map(this::linkToRepository).toArray(Link[]::new));
 		return resource;
 	}
@@ -67,31 +102,171 @@ public class RepositoriesController {
 	@RequestMapping(method = POST)
 	public HttpEntity<?> createRepository(@RequestBody RepositoryResource repositoryResource) {
 		String name = repositoryService.createRepository(repositoryAssembler.toRepository(repositoryResource));
+		if (name == null) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
 		HttpHeaders httpHeaders = new HttpHeaders();
 		httpHeaders.setLocation(fromCurrentRequest().path("/{name}").buildAndExpand(name).toUri());
 		return new ResponseEntity<>(null, httpHeaders, CREATED);
 	}
 
+	@RequestMapping(path = "/-/search", method = GET)
+	public HttpEntity<SearchResource> search(
+			@RequestParam(required = false) String q,
+			@RequestParam(required = false) String author,
+			@RequestParam(required = false) String repository,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime since,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime until,
+			@RequestParam(defaultValue = "100") int limit) {
+		CommitSearchQuery query = new CommitSearchQuery(q, author, repository, since, until, limit);
+		if (!query.isValid()) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
+		SearchResource resource = searchResourceAssembler.toResource(repositoryService.searchCommits(query));
+		resource.add(new Link(fromCurrentRequest().build().toUriString()).withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).withRel("parent"));
+		return new ResponseEntity<>(resource, OK);
+	}
+
 	@RequestMapping(path = "/{repositoryName}", method = GET)
-	public HttpEntity<RepositoryResource> repository(@PathVariable String repositoryName) {
+	public HttpEntity<RepositoryResource> repository(
+			@PathVariable String repositoryName,
+			@RequestHeader(name = "If-None-Match", required = false) String ifNoneMatch) {
+		HttpHeaders httpHeaders = new HttpHeaders();
+		if (notModified(ifNoneMatch, repositoryService.findRefsVersion(repositoryName), null, httpHeaders)) {
+			return new ResponseEntity<>(httpHeaders, NOT_MODIFIED);
+		}
 		Repository repository = repositoryService.findRepository(repositoryName);
 		if (repository == null) {
-			new ResponseEntity<>(NOT_FOUND);
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		if (notModified(ifNoneMatch, repositoryService.findRefsVersion(repositoryName), null, httpHeaders)) {
+			return new ResponseEntity<>(httpHeaders, NOT_MODIFIED);
 		}
 		RepositoryResource resource = repositoryResourceAssembler.toResource(repository);
 		resource.add(linkTo(RepositoriesController.class).withRel("parent"));
 		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("log").withRel("log"));
-		return new ResponseEntity<>(resource, OK);
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("hooks").withRel("hooks"));
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("packs").withRel("packs"));
+		return new ResponseEntity<>(resource, httpHeaders, OK);
 	}
 
 	@RequestMapping(path = "/{repositoryName}/log", method = GET)
-	public HttpEntity<CommitsResource> commitsFor(@PathVariable String repositoryName) {
-		List<Commit> commits = repositoryService.findRepositoryCommits(repositoryName);
-		if (commits == null) {
+	public HttpEntity<StreamingResponseBody> commitsFor(
+			@PathVariable String repositoryName,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String after,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime since,
+			@RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME) ZonedDateTime until,
+			@RequestParam(required = false) String author,
+			@RequestParam(required = false) String fields,
+			@RequestHeader(name = "If-None-Match", required = false) String ifNoneMatch,
+			HttpServletResponse response) {
+		if (!repositoryService.repositoryCommitsExists(repositoryName)) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		CommitLogQuery query = new CommitLogQuery(limit, after, since, until, author, fields);
+		if (!query.isValid()) {
+			return new ResponseEntity<>(BAD_REQUEST);
+		}
+		UriComponentsBuilder nextLink = fromCurrentRequest();
+		HttpHeaders httpHeaders = new HttpHeaders();
+		if (notModified(ifNoneMatch, repositoryService.findRefsVersion(repositoryName), nextLink.build().getQuery(), httpHeaders)) {
+			response.setHeader(HttpHeaders.ETAG, httpHeaders.getETag());
+			return new ResponseEntity<>(NOT_MODIFIED);
+		}
+		if (!repositoryService.revalidateRepository(repositoryName)) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		if (notModified(ifNoneMatch, repositoryService.findRefsVersion(repositoryName), nextLink.build().getQuery(), httpHeaders)) {
+			response.setHeader(HttpHeaders.ETAG, httpHeaders.getETag());
+			return new ResponseEntity<>(NOT_MODIFIED);
+		}
+		if (query.getAfter() != null && !repositoryService.commitReachable(repositoryName, query.getAfter())) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		Link self = linkTo(RepositoriesController.class).slash(repositoryName).slash("log").withSelfRel();
+		Link parent = linkTo(RepositoriesController.class).slash(repositoryName).withRel("parent");
+		httpHeaders.setContentType(HAL_JSON);
+		StreamingResponseBody body = outputStream -> commitsResourceWriter.write(
+				outputStream, consumer -> repositoryService.findRepositoryCommits(repositoryName, query, consumer), query, nextLink, self, parent);
+		return new ResponseEntity<>(body, httpHeaders, OK);
+	}
+
+	@RequestMapping(path = "/{repositoryName}/commits/{commitId}/changes", method = GET)
+	public HttpEntity<ChangesResource> changesFor(@PathVariable String repositoryName, @PathVariable String commitId) {
+		CommitChanges commitChanges = repositoryService.findCommitChanges(repositoryName, commitId);
+		if (commitChanges == null) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		ChangesResource resource = changesResourceAssembler.toResource(commitChanges);
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("commits").slash(commitId).slash("changes").withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("log").withRel("log"));
+		return new ResponseEntity<>(resource, OK);
+	}
+
+	@RequestMapping(path = "/{repositoryName}/commits/{commitId}/worktree", method = POST)
+	public HttpEntity<WorkTreeResource> checkoutWorkTree(@PathVariable String repositoryName, @PathVariable String commitId) {
+		File workTree = repositoryService.checkoutWorkTree(repositoryName, commitId);
+		if (workTree == null) {
 			return new ResponseEntity<>(NOT_FOUND);
 		}
-		CommitsResource resource = new CommitsResource(commits.stream().map(commitResourceAssembler::toResource).collect(toList()));
-		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("log").withSelfRel());
+		WorkTreeResource resource = workTreeResourceAssembler.toResource(commitId, workTree);
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("commits").slash(commitId).slash("worktree").withSelfRel());
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("commits").slash(commitId).slash("changes").withRel("changes"));
+		return new ResponseEntity<>(resource, CREATED);
+	}
+
+	@RequestMapping(path = "/{repositoryName}/commits/{commitId}/worktree", method = DELETE)
+	public HttpEntity<?> deleteWorkTree(@PathVariable String repositoryName, @PathVariable String commitId) {
+		if (!repositoryService.deleteWorkTree(repositoryName, commitId)) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		return new ResponseEntity<>(NO_CONTENT);
+	}
+
+	@RequestMapping(path = "/{repositoryName}/packs", method = GET)
+	public HttpEntity<PacksResource> packsFor(@PathVariable String repositoryName) {
+		PackStatistics statistics = repositoryService.findPackStatistics(repositoryName);
+		if (statistics == null) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		PacksResource resource = packsResourceAssembler.toResource(statistics);
+		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).slash("packs").withSelfRel());
 		resource.add(linkTo(RepositoriesController.class).slash(repositoryName).withRel("parent"));
 		return new ResponseEntity<>(resource, OK);
-	}}
+	}
+
+	@RequestMapping(path = "/{repositoryName}/hooks", method = POST)
+	public HttpEntity<?> hook(@PathVariable String repositoryName) {
+		if (!repositoryService.notifyPush(repositoryName)) {
+			return new ResponseEntity<>(NOT_FOUND);
+		}
+		return new ResponseEntity<>(ACCEPTED);
+	}
+
+	private boolean notModified(String ifNoneMatch, String refsVersion, String query, HttpHeaders httpHeaders) {
+		if (refsVersion == null) {
+			return false;
+		}
+		String eTag = refsVersion;
+		if (query != null) {
+			eTag += "-" + DigestUtils.md5DigestAsHex(query.getBytes(StandardCharsets.UTF_8));
+		}
+		eTag = "\"" + eTag + "\"";
+		httpHeaders.setETag(eTag);
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String value = candidate.trim();
+			if (value.startsWith("W/")) {
+				value = value.substring(2);
+			}
+			if (value.equals(eTag) || value.equals("*")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
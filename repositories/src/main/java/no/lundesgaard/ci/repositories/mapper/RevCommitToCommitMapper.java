@@ -1,11 +1,20 @@
 package no.lundesgaard.ci.repositories.mapper;
 
+import static no.lundesgaard.ci.repositories.model.CommitField.AUTHOR;
+import static no.lundesgaard.ci.repositories.model.CommitField.COMMIT_DATE_TIME;
+import static no.lundesgaard.ci.repositories.model.CommitField.FULL_MESSAGE;
+
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import no.lundesgaard.ci.repositories.model.Author;
 import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitField;
 
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -13,13 +22,41 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class RevCommitToCommitMapper {
-	public Commit commit(RevCommit revCommit) {
-		String commitId = revCommit.getName();
-		PersonIdent authorIdent = revCommit.getAuthorIdent();
-		Author author = new Author(authorIdent.getName(), authorIdent.getEmailAddress());
-		int commitTime = revCommit.getCommitTime();
-		String fullMessage = revCommit.getFullMessage();
-		ZonedDateTime commitDateTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(commitTime), ZoneId.systemDefault());
-		return new Commit(commitId, author, commitDateTime, fullMessage);
+	private final ZoneId zoneId = ZoneId.systemDefault();
+
+	public Function<RevCommit, Commit> commitMapper(Set<CommitField> fields) {
+		boolean withAuthor = fields.contains(AUTHOR);
+		boolean withCommitDateTime = fields.contains(COMMIT_DATE_TIME);
+		boolean withFullMessage = fields.contains(FULL_MESSAGE);
+		Map<String, Map<String, Author>> authorMap = new HashMap<>();
+		return revCommit -> new Commit(
+				revCommit.getName(),
+				withAuthor ? author(authorMap, revCommit.getAuthorIdent()) : null,
+				withCommitDateTime ? commitDateTime(revCommit) : null,
+				withFullMessage ? revCommit.getFullMessage() : null);
+	}
+
+	public boolean requiresBody(Set<CommitField> fields) {
+		return fields.contains(AUTHOR) || fields.contains(FULL_MESSAGE);
+	}
+
+	private Author author(Map<String, Map<String, Author>> authorMap, PersonIdent authorIdent) {
+		String email = authorIdent.getEmailAddress();
+		Map<String, Author> authorsByName = authorMap.get(email);
+		if (authorsByName == null) {
+			authorsByName = new HashMap<>();
+			authorMap.put(email, authorsByName);
+		}
+		String name = authorIdent.getName();
+		Author author = authorsByName.get(name);
+		if (author == null) {
+			author = new Author(name, email);
+			authorsByName.put(name, author);
+		}
+		return author;
+	}
+
+	private ZonedDateTime commitDateTime(RevCommit revCommit) {
+		return ZonedDateTime.ofInstant(Instant.ofEpochSecond(revCommit.getCommitTime()), zoneId);
 	}
 }
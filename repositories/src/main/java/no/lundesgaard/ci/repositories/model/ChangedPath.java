@@ -0,0 +1,37 @@
+package no.lundesgaard.ci.repositories.model;
+
+public class ChangedPath {
+	private final String changeType;
+	private final String oldPath;
+	private final String newPath;
+	private final int linesAdded;
+	private final int linesDeleted;
+
+	public ChangedPath(String changeType, String oldPath, String newPath, int linesAdded, int linesDeleted) {
+		this.changeType = changeType;
+		this.oldPath = oldPath;
+		this.newPath = newPath;
+		this.linesAdded = linesAdded;
+		this.linesDeleted = linesDeleted;
+	}
+
+	public String getChangeType() {
+		return changeType;
+	}
+
+	public String getOldPath() {
+		return oldPath;
+	}
+
+	public String getNewPath() {
+		return newPath;
+	}
+
+	public int getLinesAdded() {
+		return linesAdded;
+	}
+
+	public int getLinesDeleted() {
+		return linesDeleted;
+	}
+}
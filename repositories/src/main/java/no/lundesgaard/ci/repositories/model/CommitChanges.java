@@ -0,0 +1,29 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.util.List;
+
+public class CommitChanges {
+	private final String commitId;
+	private final List<ChangedPath> changedPaths;
+
+	public CommitChanges(String commitId, List<ChangedPath> changedPaths) {
+		this.commitId = commitId;
+		this.changedPaths = changedPaths;
+	}
+
+	public String getCommitId() {
+		return commitId;
+	}
+
+	public List<ChangedPath> getChangedPaths() {
+		return changedPaths;
+	}
+
+	public int getLinesAdded() {
+		return changedPaths.stream().mapToInt(ChangedPath::getLinesAdded).sum();
+	}
+
+	public int getLinesDeleted() {
+		return changedPaths.stream().mapToInt(ChangedPath::getLinesDeleted).sum();
+	}
+}
@@ -0,0 +1,49 @@
+package no.lundesgaard.ci.repositories.model;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum CommitField {
+	COMMIT_ID("commitId"),
+	AUTHOR("author"),
+	COMMIT_DATE_TIME("commitDateTime"),
+	FULL_MESSAGE("fullMessage");
+
+	public static final Set<CommitField> ALL = unmodifiableSet(EnumSet.allOf(CommitField.class));
+
+	private final String fieldName;
+
+	CommitField(String fieldName) {
+		this.fieldName = fieldName;
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public static Set<CommitField> parse(String fieldNames) {
+		if (fieldNames == null) {
+			return ALL;
+		}
+		Set<CommitField> fields = EnumSet.of(COMMIT_ID);
+		for (String fieldName : fieldNames.split(",")) {
+			CommitField field = fromFieldName(fieldName.trim());
+			if (field == null) {
+				return null;
+			}
+			fields.add(field);
+		}
+		return fields;
+	}
+
+	private static CommitField fromFieldName(String fieldName) {
+		for (CommitField field : values()) {
+			if (field.fieldName.equals(fieldName)) {
+				return field;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,57 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class CommitLogQuery {
+	private static final Pattern COMMIT_ID = Pattern.compile("[0-9a-fA-F]{40}");
+
+	private final Integer limit;
+	private final String after;
+	private final ZonedDateTime since;
+	private final ZonedDateTime until;
+	private final String author;
+	private final Set<CommitField> fields;
+
+	public CommitLogQuery(Integer limit, String after, ZonedDateTime since, ZonedDateTime until, String author, String fields) {
+		this.limit = limit;
+		this.after = after;
+		this.since = since;
+		this.until = until;
+		this.author = author;
+		this.fields = CommitField.parse(fields);
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public String getAfter() {
+		return after;
+	}
+
+	public ZonedDateTime getSince() {
+		return since;
+	}
+
+	public ZonedDateTime getUntil() {
+		return until;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public Set<CommitField> getFields() {
+		return fields;
+	}
+
+	public boolean isValid() {
+		return (limit == null || limit > 0) && (after == null || COMMIT_ID.matcher(after).matches()) && fields != null;
+	}
+
+	public boolean isFiltered() {
+		return after != null || since != null || until != null || author != null;
+	}
+}
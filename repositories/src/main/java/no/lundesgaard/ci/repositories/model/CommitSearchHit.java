@@ -0,0 +1,19 @@
+package no.lundesgaard.ci.repositories.model;
+
+public class CommitSearchHit {
+	private final String repositoryName;
+	private final Commit commit;
+
+	public CommitSearchHit(String repositoryName, Commit commit) {
+		this.repositoryName = repositoryName;
+		this.commit = commit;
+	}
+
+	public String getRepositoryName() {
+		return repositoryName;
+	}
+
+	public Commit getCommit() {
+		return commit;
+	}
+}
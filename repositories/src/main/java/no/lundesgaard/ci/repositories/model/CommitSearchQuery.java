@@ -0,0 +1,49 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.time.ZonedDateTime;
+
+public class CommitSearchQuery {
+	private final String text;
+	private final String author;
+	private final String repository;
+	private final ZonedDateTime since;
+	private final ZonedDateTime until;
+	private final int limit;
+
+	public CommitSearchQuery(String text, String author, String repository, ZonedDateTime since, ZonedDateTime until, int limit) {
+		this.text = text;
+		this.author = author;
+		this.repository = repository;
+		this.since = since;
+		this.until = until;
+		this.limit = limit;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public String getRepository() {
+		return repository;
+	}
+
+	public ZonedDateTime getSince() {
+		return since;
+	}
+
+	public ZonedDateTime getUntil() {
+		return until;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public boolean isValid() {
+		return limit > 0 && (since == null || until == null || !since.isAfter(until));
+	}
+}
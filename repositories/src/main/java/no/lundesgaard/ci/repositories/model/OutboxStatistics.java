@@ -0,0 +1,63 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.time.Instant;
+
+public class OutboxStatistics {
+	private final int pending;
+	private final int capacity;
+	private final long delivered;
+	private final long dropped;
+	private final long failures;
+	private final long retryDelay;
+	private final Instant lastDelivery;
+	private final String lastError;
+	private final long writeErrors;
+
+	public OutboxStatistics(int pending, int capacity, long delivered, long dropped, long failures, long retryDelay, Instant lastDelivery, String lastError, long writeErrors) {
+		this.pending = pending;
+		this.capacity = capacity;
+		this.delivered = delivered;
+		this.dropped = dropped;
+		this.failures = failures;
+		this.retryDelay = retryDelay;
+		this.lastDelivery = lastDelivery;
+		this.lastError = lastError;
+		this.writeErrors = writeErrors;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getDelivered() {
+		return delivered;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public Instant getLastDelivery() {
+		return lastDelivery;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public long getWriteErrors() {
+		return writeErrors;
+	}
+}
@@ -0,0 +1,73 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.time.Instant;
+
+public class PackStatistics {
+	private final long looseObjects;
+	private final long sizeOfLooseObjects;
+	private final long packFiles;
+	private final long packedObjects;
+	private final long sizeOfPackedObjects;
+	private final long looseRefs;
+	private final long packedRefs;
+	private final Instant lastMaintenance;
+	private final long lastMaintenanceDuration;
+
+	public PackStatistics(long looseObjects, long sizeOfLooseObjects, long packFiles, long packedObjects, long sizeOfPackedObjects, long looseRefs, long packedRefs) {
+		this(looseObjects, sizeOfLooseObjects, packFiles, packedObjects, sizeOfPackedObjects, looseRefs, packedRefs, null, 0);
+	}
+
+	public PackStatistics(PackStatistics statistics, Instant lastMaintenance, long lastMaintenanceDuration) {
+		this(statistics.looseObjects, statistics.sizeOfLooseObjects, statistics.packFiles, statistics.packedObjects, statistics.sizeOfPackedObjects,
+				statistics.looseRefs, statistics.packedRefs, lastMaintenance, lastMaintenanceDuration);
+	}
+
+	private PackStatistics(long looseObjects, long sizeOfLooseObjects, long packFiles, long packedObjects, long sizeOfPackedObjects, long looseRefs, long packedRefs,
+			Instant lastMaintenance, long lastMaintenanceDuration) {
+		this.looseObjects = looseObjects;
+		this.sizeOfLooseObjects = sizeOfLooseObjects;
+		this.packFiles = packFiles;
+		this.packedObjects = packedObjects;
+		this.sizeOfPackedObjects = sizeOfPackedObjects;
+		this.looseRefs = looseRefs;
+		this.packedRefs = packedRefs;
+		this.lastMaintenance = lastMaintenance;
+		this.lastMaintenanceDuration = lastMaintenanceDuration;
+	}
+
+	public long getLooseObjects() {
+		return looseObjects;
+	}
+
+	public long getSizeOfLooseObjects() {
+		return sizeOfLooseObjects;
+	}
+
+	public long getPackFiles() {
+		return packFiles;
+	}
+
+	public long getPackedObjects() {
+		return packedObjects;
+	}
+
+	public long getSizeOfPackedObjects() {
+		return sizeOfPackedObjects;
+	}
+
+	public long getLooseRefs() {
+		return looseRefs;
+	}
+
+	public long getPackedRefs() {
+		return packedRefs;
+	}
+
+	public Instant getLastMaintenance() {
+		return lastMaintenance;
+	}
+
+	public long getLastMaintenanceDuration() {
+		return lastMaintenanceDuration;
+	}
+}
@@ -0,0 +1,39 @@
+package no.lundesgaard.ci.repositories.model;
+
+import java.util.List;
+
+public class PollingStatistics {
+	private final int workers;
+	private final int activePolls;
+	private final int queueDepth;
+	private final long maxLag;
+	private final List<RepositoryPollingStatistics> repositories;
+
+	public PollingStatistics(int workers, int activePolls, int queueDepth, long maxLag, List<RepositoryPollingStatistics> repositories) {
+		this.workers = workers;
+		this.activePolls = activePolls;
+		this.queueDepth = queueDepth;
+		this.maxLag = maxLag;
+		this.repositories = repositories;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public int getActivePolls() {
+		return activePolls;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public long getMaxLag() {
+		return maxLag;
+	}
+
+	public List<RepositoryPollingStatistics> getRepositories() {
+		return repositories;
+	}
+}
@@ -0,0 +1,25 @@
+package no.lundesgaard.ci.repositories.model;
+
+public class RefChange {
+	private final String ref;
+	private final String oldCommitId;
+	private final String newCommitId;
+
+	public RefChange(String ref, String oldCommitId, String newCommitId) {
+		this.ref = ref;
+		this.oldCommitId = oldCommitId;
+		this.newCommitId = newCommitId;
+	}
+
+	public String getRef() {
+		return ref;
+	}
+
+	public String getOldCommitId() {
+		return oldCommitId;
+	}
+
+	public String getNewCommitId() {
+		return newCommitId;
+	}
+}
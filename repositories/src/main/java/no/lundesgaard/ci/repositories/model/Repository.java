@@ -1,9 +1,12 @@
 package no.lundesgaard.ci.repositories.model;
 
+import java.time.Instant;
+
 public class Repository {
 	private String name;
-	private String url;
-	private Commit lastCommit;
+	private volatile String url;
+	private volatile Commit lastCommit;
+	private volatile Instant lastChecked;
 
 	public Repository() {
 	}
@@ -12,6 +15,7 @@ public class Repository {
 		this.name = repository.name;
 		this.url = repository.url;
 		this.lastCommit = lastCommit;
+		this.lastChecked = repository.lastChecked;
 	}
 
 	public Repository(String name, String url) {
@@ -42,4 +46,12 @@ public class Repository {
 	public void setLastCommit(Commit lastCommit) {
 		this.lastCommit = lastCommit;
 	}
+
+	public Instant getLastChecked() {
+		return lastChecked;
+	}
+
+	public void setLastChecked(Instant lastChecked) {
+		this.lastChecked = lastChecked;
+	}
 }
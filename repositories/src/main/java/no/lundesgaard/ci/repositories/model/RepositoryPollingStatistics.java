@@ -0,0 +1,31 @@
+package no.lundesgaard.ci.repositories.model;
+
+public class RepositoryPollingStatistics {
+	private final String name;
+	private final String remote;
+	private final long interval;
+	private final long lag;
+
+	public RepositoryPollingStatistics(String name, String remote, long interval, long lag) {
+		this.name = name;
+		this.remote = remote;
+		this.interval = interval;
+		this.lag = lag;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getRemote() {
+		return remote;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public long getLag() {
+		return lag;
+	}
+}
@@ -1,17 +1,39 @@
 package no.lundesgaard.ci.repositories.model;
 
 import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 @JsonSerialize
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RepositoryUpdateEvent implements Serializable {
 	private String value;
+	private Map<String, String> attributes;
 
 	public RepositoryUpdateEvent(String value) {
 		this.value = value;
 	}
 
+	public RepositoryUpdateEvent(String value, Map<String, String> attributes) {
+		this.value = value;
+		this.attributes = attributes;
+	}
+
+	public RepositoryUpdateEvent(String value, RefChange refChange) {
+		this.value = value;
+		this.attributes = new LinkedHashMap<>();
+		this.attributes.put("ref", refChange.getRef());
+		if (refChange.getOldCommitId() != null) {
+			this.attributes.put("oldCommitId", refChange.getOldCommitId());
+		}
+		if (refChange.getNewCommitId() != null) {
+			this.attributes.put("newCommitId", refChange.getNewCommitId());
+		}
+	}
+
 	public String getType() {
 		return "repository-update";
 	}
@@ -19,4 +41,21 @@ public class RepositoryUpdateEvent implements Serializable {
 	public String getValue() {
 		return value;
 	}
+
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	public String getIdempotencyKey() {
+		if (attributes == null || attributes.get("ref") == null) {
+			return null;
+		}
+		if (attributes.get("newCommitId") != null) {
+			return value + ":" + attributes.get("ref") + ":" + attributes.get("newCommitId");
+		}
+		if (attributes.get("oldCommitId") != null) {
+			return value + ":" + attributes.get("ref") + ":" + attributes.get("oldCommitId") + ":deleted";
+		}
+		return null;
+	}
 }
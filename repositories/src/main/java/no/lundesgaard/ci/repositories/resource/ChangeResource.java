@@ -0,0 +1,42 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import org.springframework.hateoas.ResourceSupport;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeResource extends ResourceSupport {
+	private String changeType;
+	private String oldPath;
+	private String newPath;
+	private int linesAdded;
+	private int linesDeleted;
+
+	public ChangeResource(String changeType, String oldPath, String newPath, int linesAdded, int linesDeleted) {
+		this.changeType = changeType;
+		this.oldPath = oldPath;
+		this.newPath = newPath;
+		this.linesAdded = linesAdded;
+		this.linesDeleted = linesDeleted;
+	}
+
+	public String getChangeType() {
+		return changeType;
+	}
+
+	public String getOldPath() {
+		return oldPath;
+	}
+
+	public String getNewPath() {
+		return newPath;
+	}
+
+	public int getLinesAdded() {
+		return linesAdded;
+	}
+
+	public int getLinesDeleted() {
+		return linesDeleted;
+	}
+}
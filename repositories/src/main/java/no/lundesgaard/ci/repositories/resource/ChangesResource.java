@@ -0,0 +1,35 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class ChangesResource extends ResourceSupport {
+	private String commitId;
+	private int linesAdded;
+	private int linesDeleted;
+	private List<ChangeResource> changes;
+
+	public ChangesResource(String commitId, int linesAdded, int linesDeleted, List<ChangeResource> changes) {
+		this.commitId = commitId;
+		this.linesAdded = linesAdded;
+		this.linesDeleted = linesDeleted;
+		this.changes = changes;
+	}
+
+	public String getCommitId() {
+		return commitId;
+	}
+
+	public int getLinesAdded() {
+		return linesAdded;
+	}
+
+	public int getLinesDeleted() {
+		return linesDeleted;
+	}
+
+	public List<ChangeResource> getChanges() {
+		return changes;
+	}
+}
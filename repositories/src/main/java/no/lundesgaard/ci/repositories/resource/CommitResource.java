@@ -4,6 +4,9 @@ import java.time.ZonedDateTime;
 
 import org.springframework.hateoas.ResourceSupport;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CommitResource extends ResourceSupport {
 	private String commitId;
 	private AuthorResource author;
@@ -0,0 +1,65 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import java.time.Instant;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class OutboxResource extends ResourceSupport {
+	private int pending;
+	private int capacity;
+	private long delivered;
+	private long dropped;
+	private long failures;
+	private long retryDelay;
+	private Instant lastDelivery;
+	private String lastError;
+	private long writeErrors;
+
+	public OutboxResource(int pending, int capacity, long delivered, long dropped, long failures, long retryDelay, Instant lastDelivery, String lastError, long writeErrors) {
+		this.pending = pending;
+		this.capacity = capacity;
+		this.delivered = delivered;
+		this.dropped = dropped;
+		this.failures = failures;
+		this.retryDelay = retryDelay;
+		this.lastDelivery = lastDelivery;
+		this.lastError = lastError;
+		this.writeErrors = writeErrors;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getDelivered() {
+		return delivered;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public Instant getLastDelivery() {
+		return lastDelivery;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public long getWriteErrors() {
+		return writeErrors;
+	}
+}
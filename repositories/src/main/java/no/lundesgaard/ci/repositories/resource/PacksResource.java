@@ -0,0 +1,66 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import java.time.Instant;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class PacksResource extends ResourceSupport {
+	private long looseObjects;
+	private long sizeOfLooseObjects;
+	private long packFiles;
+	private long packedObjects;
+	private long sizeOfPackedObjects;
+	private long looseRefs;
+	private long packedRefs;
+	private Instant lastMaintenance;
+	private long lastMaintenanceDuration;
+
+	public PacksResource(long looseObjects, long sizeOfLooseObjects, long packFiles, long packedObjects, long sizeOfPackedObjects, long looseRefs, long packedRefs,
+			Instant lastMaintenance, long lastMaintenanceDuration) {
+		this.looseObjects = looseObjects;
+		this.sizeOfLooseObjects = sizeOfLooseObjects;
+		this.packFiles = packFiles;
+		this.packedObjects = packedObjects;
+		this.sizeOfPackedObjects = sizeOfPackedObjects;
+		this.looseRefs = looseRefs;
+		this.packedRefs = packedRefs;
+		this.lastMaintenance = lastMaintenance;
+		this.lastMaintenanceDuration = lastMaintenanceDuration;
+	}
+
+	public long getLooseObjects() {
+		return looseObjects;
+	}
+
+	public long getSizeOfLooseObjects() {
+		return sizeOfLooseObjects;
+	}
+
+	public long getPackFiles() {
+		return packFiles;
+	}
+
+	public long getPackedObjects() {
+		return packedObjects;
+	}
+
+	public long getSizeOfPackedObjects() {
+		return sizeOfPackedObjects;
+	}
+
+	public long getLooseRefs() {
+		return looseRefs;
+	}
+
+	public long getPackedRefs() {
+		return packedRefs;
+	}
+
+	public Instant getLastMaintenance() {
+		return lastMaintenance;
+	}
+
+	public long getLastMaintenanceDuration() {
+		return lastMaintenanceDuration;
+	}
+}
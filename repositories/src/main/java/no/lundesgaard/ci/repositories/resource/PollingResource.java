@@ -0,0 +1,41 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import java.util.List;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class PollingResource extends ResourceSupport {
+	private int workers;
+	private int activePolls;
+	private int queueDepth;
+	private long maxLag;
+	private List<RepositoryPollingResource> repositories;
+
+	public PollingResource(int workers, int activePolls, int queueDepth, long maxLag, List<RepositoryPollingResource> repositories) {
+		this.workers = workers;
+		this.activePolls = activePolls;
+		this.queueDepth = queueDepth;
+		this.maxLag = maxLag;
+		this.repositories = repositories;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public int getActivePolls() {
+		return activePolls;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public long getMaxLag() {
+		return maxLag;
+	}
+
+	public List<RepositoryPollingResource> getRepositories() {
+		return repositories;
+	}
+}
@@ -0,0 +1,33 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class RepositoryPollingResource extends ResourceSupport {
+	private String name;
+	private String remote;
+	private long interval;
+	private long lag;
+
+	public RepositoryPollingResource(String name, String remote, long interval, long lag) {
+		this.name = name;
+		this.remote = remote;
+		this.interval = interval;
+		this.lag = lag;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getRemote() {
+		return remote;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public long getLag() {
+		return lag;
+	}
+}
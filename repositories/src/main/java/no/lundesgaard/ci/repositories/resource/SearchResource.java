@@ -4,10 +4,10 @@ import java.util.List;
 
 import org.springframework.hateoas.ResourceSupport;
 
-public class CommitsResource extends ResourceSupport {
+public class SearchResource extends ResourceSupport {
 	private List<CommitResource> commits;
 
-	public CommitsResource(List<CommitResource> commits) {
+	public SearchResource(List<CommitResource> commits) {
 		this.commits = commits;
 	}
 
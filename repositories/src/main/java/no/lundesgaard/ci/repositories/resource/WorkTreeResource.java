@@ -0,0 +1,21 @@
+package no.lundesgaard.ci.repositories.resource;
+
+import org.springframework.hateoas.ResourceSupport;
+
+public class WorkTreeResource extends ResourceSupport {
+	private String commitId;
+	private String path;
+
+	public WorkTreeResource(String commitId, String path) {
+		this.commitId = commitId;
+		this.path = path;
+	}
+
+	public String getCommitId() {
+		return commitId;
+	}
+
+	public String getPath() {
+		return path;
+	}
+}
@@ -0,0 +1,162 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.repositories.model.ChangedPath;
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitChanges;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CommitChangesService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CommitChangesService.class);
+
+	@Autowired
+	private RepositoryPool repositoryPool;
+
+	@Value("${services.changes.cacheSize:10000}")
+	private int cacheSize;
+	@Value("${services.changes.prefetch:100}")
+	private int prefetch;
+
+	private Map<ChangesKey, CommitChanges> changesCache;
+	private ThreadPoolExecutor prefetchExecutor;
+
+	@PostConstruct
+	public void start() {
+		changesCache = Collections.synchronizedMap(new LinkedHashMap<ChangesKey, CommitChanges>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ChangesKey, CommitChanges> eldest) {
+				return size() > cacheSize;
+			}
+		});
+		prefetchExecutor = new ThreadPoolExecutor(1, 1, 0, MILLISECONDS, new ArrayBlockingQueue<>(prefetch), new CustomizableThreadFactory("changes-prefetch-"), new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	@PreDestroy
+	public void stop() {
+		prefetchExecutor.shutdownNow();
+	}
+
+	public CommitChanges findChanges(String repositoryName, String commitId) {
+		if (!ObjectId.isId(commitId)) {
+			return null;
+		}
+		ChangesKey changesKey = new ChangesKey(repositoryName, ObjectId.fromString(commitId));
+		CommitChanges commitChanges = changesCache.get(changesKey);
+		if (commitChanges != null) {
+			return commitChanges;
+		}
+		try (Repository repository = repositoryPool.open(repositoryName)) {
+			return computeChanges(repository, changesKey);
+		} catch (MissingObjectException e) {
+			return null;
+		} catch (IOException e) {
+			throw new GitServiceException(format("Failed to get changes for commit <%s> in repository <%s>: %s", commitId, repositoryName, e.getMessage()), e);
+		}
+	}
+
+	public void prefetch(String repositoryName, List<Commit> commits) {
+		commits.stream().limit(prefetch).forEach(commit -> prefetchExecutor.execute(() -> {
+			try {
+				findChanges(repositoryName, commit.getCommitId());
+			} catch (RuntimeException e) {
+				LOGGER.warn("Failed to prefetch changes for commit <{}> in repository <{}>: {}", commit.getCommitId(), repositoryName, e.getMessage());
+			}
+		}));
+	}
+
+	private CommitChanges computeChanges(Repository repository, ChangesKey changesKey) throws IOException {
+		try (RevWalk revWalk = new RevWalk(repository); DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+			RevCommit commit = revWalk.parseCommit(changesKey.commitId);
+			RevTree parentTree = commit.getParentCount() > 0 ? revWalk.parseCommit(commit.getParent(0)).getTree() : null;
+			diffFormatter.setRepository(repository);
+			diffFormatter.setDetectRenames(true);
+			List<ChangedPath> changedPaths = new ArrayList<>();
+			for (DiffEntry diffEntry : diffFormatter.scan(parentTree, commit.getTree())) {
+				changedPaths.add(changedPath(diffFormatter, diffEntry));
+			}
+			CommitChanges commitChanges = new CommitChanges(commit.getName(), changedPaths);
+			changesCache.put(changesKey, commitChanges);
+			return commitChanges;
+		}
+	}
+
+	private ChangedPath changedPath(DiffFormatter diffFormatter, DiffEntry diffEntry) throws IOException {
+		int linesAdded = 0;
+		int linesDeleted = 0;
+		for (Edit edit : diffFormatter.toFileHeader(diffEntry).toEditList()) {
+			linesAdded += edit.getLengthB();
+			linesDeleted += edit.getLengthA();
+		}
+		return new ChangedPath(diffEntry.getChangeType().name(), path(diffEntry.getOldPath()), path(diffEntry.getNewPath()), linesAdded, linesDeleted);
+	}
+
+	private String path(String path) {
+		return DiffEntry.DEV_NULL.equals(path) ? null : path;
+	}
+
+	private static class ChangesKey {
+		private final String repositoryName;
+		private final ObjectId commitId;
+
+		private ChangesKey(String repositoryName, ObjectId commitId) {
+			this.repositoryName = repositoryName;
+			this.commitId = commitId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			ChangesKey changesKey = (ChangesKey) o;
+			return new EqualsBuilder()
+					.append(repositoryName, changesKey.repositoryName)
+					.append(commitId, changesKey.commitId)
+					.isEquals();
+		}
+
+		@Override
+		public int hashCode() {
+			return new HashCodeBuilder(17, 37)
+					.append(repositoryName)
+					.append(commitId)
+					.toHashCode();
+		}
+	}
+}
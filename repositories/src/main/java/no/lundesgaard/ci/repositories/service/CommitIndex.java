@@ -0,0 +1,94 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import no.lundesgaard.ci.repositories.model.Commit;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+public class CommitIndex {
+	private static final Commit[] NO_COMMITS = new Commit[0];
+
+	private volatile Snapshot snapshot = new Snapshot(null, NO_COMMITS);
+
+	public List<Commit> commits() {
+		return snapshot.commits();
+	}
+
+	public ObjectId head() {
+		return snapshot.head;
+	}
+
+	public synchronized List<Commit> update(Repository repository, Function<RevCommit, Commit> mapper, BiConsumer<List<Commit>, Boolean> addedCommitsConsumer) throws IOException {
+		Snapshot current = snapshot;
+		ObjectId head = repository.resolve(Constants.HEAD);
+		if (head == null) {
+			snapshot = new Snapshot(null, NO_COMMITS);
+			if (current.head != null) {
+				addedCommitsConsumer.accept(snapshot.commits(), false);
+			}
+			return snapshot.commits();
+		}
+		if (head.equals(current.head)) {
+			return current.commits();
+		}
+		try (RevWalk revWalk = new RevWalk(repository)) {
+			RevCommit headCommit = revWalk.parseCommit(head);
+			boolean incremental = isAncestor(revWalk, current.head, headCommit);
+			revWalk.reset();
+			revWalk.markStart(headCommit);
+			if (incremental) {
+				revWalk.markUninteresting(revWalk.parseCommit(current.head));
+			}
+			List<Commit> added = new ArrayList<>();
+			for (RevCommit revCommit : revWalk) {
+				added.add(mapper.apply(revCommit));
+				revCommit.disposeBody();
+			}
+			Commit[] commits = added.toArray(new Commit[added.size() + (incremental ? current.commits.length : 0)]);
+			if (incremental) {
+				System.arraycopy(current.commits, 0, commits, added.size(), current.commits.length);
+			}
+			snapshot = new Snapshot(head.copy(), commits);
+			addedCommitsConsumer.accept(added, incremental);
+			return snapshot.commits();
+		}
+	}
+
+	private boolean isAncestor(RevWalk revWalk, ObjectId previousHead, RevCommit head) throws IOException {
+		if (previousHead == null) {
+			return false;
+		}
+		try {
+			return revWalk.isMergedInto(revWalk.parseCommit(previousHead), head);
+		} catch (MissingObjectException e) {
+			return false;
+		}
+	}
+
+	private static class Snapshot {
+		private final ObjectId head;
+		private final Commit[] commits;
+
+		private Snapshot(ObjectId head, Commit[] commits) {
+			this.head = head;
+			this.commits = commits;
+		}
+
+		private List<Commit> commits() {
+			return unmodifiableList(Arrays.asList(commits));
+		}
+	}
+}
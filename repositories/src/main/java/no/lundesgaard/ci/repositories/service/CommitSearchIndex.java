@@ -0,0 +1,247 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import no.lundesgaard.ci.repositories.model.Author;
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitSearchHit;
+import no.lundesgaard.ci.repositories.model.CommitSearchQuery;
+
+import org.springframework.stereotype.Service;
+
+@Service
+public class CommitSearchIndex {
+	private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final String TEXT = "t:";
+	private static final String AUTHOR = "a:";
+	private static final String REPOSITORY = "r:";
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final List<CommitSearchHit> documents = new ArrayList<>();
+	private final Set<String> indexedCommits = new HashSet<>();
+	private final Map<String, Postings> postingsMap = new HashMap<>();
+	private final NavigableMap<Long, Postings> timeIndex = new TreeMap<>();
+	private int removedDocuments;
+
+	public void add(String repositoryName, List<Commit> commits) {
+		lock.writeLock().lock();
+		try {
+			addCommits(repositoryName, commits);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void replace(String repositoryName, List<Commit> commits) {
+		lock.writeLock().lock();
+		try {
+			remove(repositoryName);
+			if (removedDocuments > documents.size() / 2) {
+				rebuild();
+			}
+			addCommits(repositoryName, commits);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public List<CommitSearchHit> search(CommitSearchQuery query) {
+		Set<String> terms = terms(query);
+		long since = query.getSince() == null ? Long.MIN_VALUE : query.getSince().toEpochSecond();
+		long until = query.getUntil() == null ? Long.MAX_VALUE : query.getUntil().toEpochSecond();
+		lock.readLock().lock();
+		try {
+			if (terms.isEmpty()) {
+				return searchByTime(since, until, query.getLimit());
+			}
+			return searchByTerms(terms, since, until, query.getLimit());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void addCommits(String repositoryName, List<Commit> commits) {
+		for (Commit commit : commits) {
+			if (indexedCommits.add(repositoryName + ":" + commit.getCommitId())) {
+				index(repositoryName, commit);
+			}
+		}
+	}
+
+	private void remove(String repositoryName) {
+		Postings postings = postingsMap.remove(REPOSITORY + repositoryName);
+		if (postings == null) {
+			return;
+		}
+		for (int i = 0; i < postings.size; i++) {
+			CommitSearchHit hit = documents.set(postings.documents[i], null);
+			if (hit != null) {
+				indexedCommits.remove(repositoryName + ":" + hit.getCommit().getCommitId());
+				removedDocuments++;
+			}
+		}
+	}
+
+	private void rebuild() {
+		List<CommitSearchHit> hits = new ArrayList<>(documents.size() - removedDocuments);
+		for (CommitSearchHit hit : documents) {
+			if (hit != null) {
+				hits.add(hit);
+			}
+		}
+		documents.clear();
+		postingsMap.clear();
+		timeIndex.clear();
+		removedDocuments = 0;
+		for (CommitSearchHit hit : hits) {
+			index(hit.getRepositoryName(), hit.getCommit());
+		}
+	}
+
+	private void index(String repositoryName, Commit commit) {
+		int document = documents.size();
+		documents.add(new CommitSearchHit(repositoryName, commit));
+		Set<String> terms = new HashSet<>();
+		terms.add(REPOSITORY + repositoryName);
+		tokens(commit.getFullMessage(), TEXT, terms);
+		Author author = commit.getAuthor();
+		if (author != null) {
+			tokens(author.getName(), AUTHOR, terms);
+			tokens(author.getEmail(), AUTHOR, terms);
+			if (author.getEmail() != null) {
+				terms.add(AUTHOR + author.getEmail().toLowerCase(Locale.ROOT));
+			}
+		}
+		for (String term : terms) {
+			postingsMap.computeIfAbsent(term, key -> new Postings()).add(document);
+		}
+		if (commit.getCommitDateTime() != null) {
+			timeIndex.computeIfAbsent(commit.getCommitDateTime().toEpochSecond(), key -> new Postings()).add(document);
+		}
+	}
+
+	private List<CommitSearchHit> searchByTime(long since, long until, int limit) {
+		List<CommitSearchHit> hits = new ArrayList<>();
+		for (Postings postings : timeIndex.subMap(since, true, until, true).descendingMap().values()) {
+			for (int i = postings.size - 1; i >= 0 && hits.size() < limit; i--) {
+				CommitSearchHit hit = documents.get(postings.documents[i]);
+				if (hit != null) {
+					hits.add(hit);
+				}
+			}
+			if (hits.size() >= limit) {
+				break;
+			}
+		}
+		return hits;
+	}
+
+	private List<CommitSearchHit> searchByTerms(Set<String> terms, long since, long until, int limit) {
+		List<Postings> postingsList = new ArrayList<>();
+		for (String term : terms) {
+			Postings postings = postingsMap.get(term);
+			if (postings == null) {
+				return new ArrayList<>();
+			}
+			postingsList.add(postings);
+		}
+		postingsList.sort(comparing(postings -> postings.size));
+		int[] candidates = Arrays.copyOf(postingsList.get(0).documents, postingsList.get(0).size);
+		for (int i = 1; i < postingsList.size() && candidates.length > 0; i++) {
+			candidates = postingsList.get(i).intersect(candidates);
+		}
+		PriorityQueue<CommitSearchHit> newestHits = new PriorityQueue<>(Math.min(limit, candidates.length) + 1, comparingLong(this::commitTime));
+		for (int document : candidates) {
+			CommitSearchHit hit = documents.get(document);
+			if (hit == null) {
+				continue;
+			}
+			long commitTime = commitTime(hit);
+			if (commitTime >= since && commitTime <= until) {
+				newestHits.add(hit);
+				if (newestHits.size() > limit) {
+					newestHits.poll();
+				}
+			}
+		}
+		List<CommitSearchHit> hits = new ArrayList<>(newestHits);
+		hits.sort(comparingLong(this::commitTime).reversed());
+		return hits;
+	}
+
+	private long commitTime(CommitSearchHit hit) {
+		return hit.getCommit().getCommitDateTime() == null ? 0 : hit.getCommit().getCommitDateTime().toEpochSecond();
+	}
+
+	private Set<String> terms(CommitSearchQuery query) {
+		Set<String> terms = new HashSet<>();
+		if (query.getRepository() != null) {
+			terms.add(REPOSITORY + query.getRepository());
+		}
+		tokens(query.getText(), TEXT, terms);
+		if (query.getAuthor() != null && query.getAuthor().contains("@")) {
+			terms.add(AUTHOR + query.getAuthor().toLowerCase(Locale.ROOT));
+		} else {
+			tokens(query.getAuthor(), AUTHOR, terms);
+		}
+		return terms;
+	}
+
+	private void tokens(String text, String prefix, Set<String> terms) {
+		if (text == null) {
+			return;
+		}
+		for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+			if (token.length() > 1) {
+				terms.add(prefix + token);
+			}
+		}
+	}
+
+	private static class Postings {
+		private int[] documents = new int[4];
+		private int size;
+
+		private void add(int document) {
+			if (size == documents.length) {
+				documents = Arrays.copyOf(documents, size * 2);
+			}
+			documents[size++] = document;
+		}
+
+		private int[] intersect(int[] candidates) {
+			int[] result = new int[Math.min(candidates.length, size)];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < candidates.length && j < size) {
+				if (candidates[i] < documents[j]) {
+					i++;
+				} else if (candidates[i] > documents[j]) {
+					j++;
+				} else {
+					result[count++] = candidates[i];
+					i++;
+					j++;
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class EventOutbox {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventOutbox.class);
+	private static final byte LEGACY_EVENT = 'E';
+	private static final byte LEGACY_ACKNOWLEDGE = 'A';
+	private static final byte EVENT = 'S';
+	private static final byte ACKNOWLEDGE = 'K';
+	private static final int COMPACTION_THRESHOLD = 1000;
+
+	@Value("${services.events.outbox.file:/repositories/.simply-ci-outbox}")
+	private String outboxPath;
+	@Value("${services.events.outbox.capacity:10000}")
+	private int capacity;
+
+	private final Deque<Entry> pendingEntries = new ArrayDeque<>();
+	private File outboxFile;
+	private FileOutputStream outboxOutputStream;
+	private DataOutputStream outboxOutput;
+	private long nextSequence;
+	private int acknowledgedRecords;
+	private long dropped;
+	private long writeErrors;
+	private boolean unsynced;
+
+	@PostConstruct
+	public synchronized void load() throws IOException {
+		outboxFile = new File(outboxPath);
+		File parent = outboxFile.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			Files.createDirectories(parent.toPath());
+		}
+		if (outboxFile.exists()) {
+			replay();
+		}
+		compact();
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		sync();
+		outboxOutput.close();
+	}
+
+	public synchronized void add(RepositoryUpdateEvent event) {
+		if (pendingEntries.size() >= capacity) {
+			long droppedSequence = pendingEntries.removeFirst().sequence;
+			dropped++;
+			write(output -> {
+				output.writeByte(ACKNOWLEDGE);
+				output.writeLong(droppedSequence);
+			});
+		}
+		Entry entry = new Entry(nextSequence++, event);
+		pendingEntries.addLast(entry);
+		write(output -> writeEntry(output, entry));
+	}
+
+	public synchronized List<Entry> peek(int maxEvents) {
+		List<Entry> entries = new ArrayList<>(Math.min(maxEvents, pendingEntries.size()));
+		Iterator<Entry> iterator = pendingEntries.iterator();
+		while (iterator.hasNext() && entries.size() < maxEvents) {
+			entries.add(iterator.next());
+		}
+		return entries;
+	}
+
+	public synchronized int acknowledge(long sequence) {
+		int removed = 0;
+		while (!pendingEntries.isEmpty() && pendingEntries.peekFirst().sequence <= sequence) {
+			pendingEntries.removeFirst();
+			removed++;
+		}
+		write(output -> {
+			output.writeByte(ACKNOWLEDGE);
+			output.writeLong(sequence);
+		});
+		acknowledgedRecords += removed;
+		if (acknowledgedRecords > COMPACTION_THRESHOLD && acknowledgedRecords > 2 * pendingEntries.size()) {
+			try {
+				compact();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to compact event outbox <{}>: {}", outboxFile, e.getMessage());
+			}
+		}
+		return removed;
+	}
+
+	@Scheduled(fixedDelayString = "${services.events.outbox.syncInterval:200}")
+	public synchronized void sync() {
+		if (!unsynced) {
+			return;
+		}
+		try {
+			outboxOutputStream.getChannel().force(false);
+			unsynced = false;
+		} catch (IOException e) {
+			writeErrors++;
+			LOGGER.error("Failed to sync event outbox <{}>: {}", outboxFile, e.getMessage());
+		}
+	}
+
+	public synchronized int size() {
+		return pendingEntries.size();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public synchronized long dropped() {
+		return dropped;
+	}
+
+	public synchronized long writeErrors() {
+		return writeErrors;
+	}
+
+	private void write(OutboxWriter writer) {
+		try {
+			writer.write(outboxOutput);
+			outboxOutput.flush();
+			unsynced = true;
+		} catch (IOException e) {
+			writeErrors++;
+			LOGGER.error("Failed to write to event outbox <{}>, reopening it: {}", outboxFile, e.getMessage());
+			try {
+				open();
+			} catch (IOException reopenException) {
+				LOGGER.error("Failed to reopen event outbox <{}>: {}", outboxFile, reopenException.getMessage());
+			}
+		}
+	}
+
+	private void replay() throws IOException {
+		byte[] bytes = Files.readAllBytes(outboxFile.toPath());
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			while (true) {
+				byte type = input.readByte();
+				if (type == EVENT) {
+					long sequence = input.readLong();
+					pendingEntries.addLast(new Entry(sequence, readEvent(input)));
+					nextSequence = Math.max(nextSequence, sequence + 1);
+				} else if (type == ACKNOWLEDGE) {
+					long sequence = input.readLong();
+					while (!pendingEntries.isEmpty() && pendingEntries.peekFirst().sequence <= sequence) {
+						pendingEntries.removeFirst();
+					}
+				} else if (type == LEGACY_EVENT) {
+					pendingEntries.addLast(new Entry(nextSequence++, readEvent(input)));
+				} else if (type == LEGACY_ACKNOWLEDGE) {
+					int count = input.readInt();
+					for (int i = 0; i < count && !pendingEntries.isEmpty(); i++) {
+						pendingEntries.removeFirst();
+					}
+				} else {
+					LOGGER.warn("Ignoring event outbox <{}> from unknown record type {}", outboxFile, type);
+					break;
+				}
+			}
+		} catch (EOFException e) {
+			LOGGER.debug("Replayed event outbox <{}> with {} pending events", outboxFile, pendingEntries.size());
+		}
+		while (pendingEntries.size() > capacity) {
+			pendingEntries.removeFirst();
+			dropped++;
+		}
+	}
+
+	private void compact() throws IOException {
+		File compactedFile = new File(outboxFile.getPath() + ".compacted");
+		try (FileOutputStream outputStream = new FileOutputStream(compactedFile);
+			 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+			for (Entry entry : pendingEntries) {
+				writeEntry(output, entry);
+			}
+			output.flush();
+			outputStream.getChannel().force(true);
+		} catch (IOException e) {
+			Files.deleteIfExists(compactedFile.toPath());
+			throw e;
+		}
+		if (outboxOutput != null) {
+			outboxOutput.close();
+		}
+		try {
+			Files.move(compactedFile.toPath(), outboxFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			acknowledgedRecords = 0;
+			unsynced = false;
+		} finally {
+			open();
+		}
+	}
+
+	private void open() throws IOException {
+		outboxOutputStream = new FileOutputStream(outboxFile, true);
+		outboxOutput = new DataOutputStream(new BufferedOutputStream(outboxOutputStream));
+	}
+
+	private void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+		output.writeByte(EVENT);
+		output.writeLong(entry.sequence);
+		RepositoryUpdateEvent event = entry.event;
+		output.writeUTF(event.getValue());
+		Map<String, String> attributes = event.getAttributes();
+		output.writeInt(attributes == null ? -1 : attributes.size());
+		if (attributes != null) {
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				output.writeUTF(attribute.getKey());
+				output.writeUTF(attribute.getValue());
+			}
+		}
+	}
+
+	private RepositoryUpdateEvent readEvent(DataInputStream input) throws IOException {
+		String value = input.readUTF();
+		int attributeCount = input.readInt();
+		Map<String, String> attributes = null;
+		if (attributeCount >= 0) {
+			attributes = new LinkedHashMap<>();
+			for (int i = 0; i < attributeCount; i++) {
+				attributes.put(input.readUTF(), input.readUTF());
+			}
+		}
+		return new RepositoryUpdateEvent(value, attributes);
+	}
+
+	public static class Entry {
+		private final long sequence;
+		private final RepositoryUpdateEvent event;
+
+		private Entry(long sequence, RepositoryUpdateEvent event) {
+			this.sequence = sequence;
+			this.event = event;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public RepositoryUpdateEvent getEvent() {
+			return event;
+		}
+	}
+
+	private interface OutboxWriter {
+		void write(DataOutputStream output) throws IOException;
+	}
+}
@@ -1,22 +1,157 @@
 package no.lundesgaard.ci.repositories.service;
 
-import java.net.URI;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.repositories.model.OutboxStatistics;
 import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 @Service
 public class EventService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventService.class);
+
+	@Autowired
+	private EventOutbox eventOutbox;
+
+	@Value("${services.events.url:http://events:8080/events/}")
+	private String eventsUrl;
+	@Value("${services.events.batchSize:100}")
+	private int batchSize;
+	@Value("${services.events.linger:200}")
+	private long linger;
+	@Value("${services.events.maxConnections:4}")
+	private int maxConnections;
+	@Value("${services.events.connectTimeout:2000}")
+	private int connectTimeout;
+	@Value("${services.events.readTimeout:5000}")
+	private int readTimeout;
+	@Value("${services.events.minRetryDelay:500}")
+	private long minRetryDelay;
+	@Value("${services.events.maxRetryDelay:60000}")
+	private long maxRetryDelay;
+
+	private final Object scheduleLock = new Object();
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private volatile long retryDelay;
+	private volatile Instant lastDelivery;
+	private volatile String lastError;
+	private CloseableHttpClient httpClient;
+	private RestTemplate restTemplate;
+	private ScheduledExecutorService publisher;
+	private ScheduledFuture<?> scheduledPublish;
+
+	@PostConstruct
+	public void start() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(connectTimeout).setSocketTimeout(readTimeout).build())
+				.build();
+		restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+		publisher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("event-publisher-"));
+		if (eventOutbox.size() > 0) {
+			requestPublish(0);
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		publisher.shutdownNow();
+		httpClient.close();
+	}
+
 	public void createEvent(RepositoryUpdateEvent event) {
+		eventOutbox.add(event);
+		requestPublish(eventOutbox.size() >= batchSize ? 0 : linger);
+	}
+
+	public OutboxStatistics statistics() {
+		return new OutboxStatistics(eventOutbox.size(), eventOutbox.capacity(), delivered.get(), eventOutbox.dropped(), failures.get(), retryDelay, lastDelivery, lastError, eventOutbox.writeErrors());
+	}
+
+	private void requestPublish(long delay) {
+		synchronized (scheduleLock) {
+			if (retryDelay == 0) {
+				schedulePublish(delay);
+			}
+		}
+	}
+
+	private void schedulePublish(long delay) {
+		if (scheduledPublish != null && !scheduledPublish.isDone()) {
+			if (scheduledPublish.getDelay(MILLISECONDS) <= delay || !scheduledPublish.cancel(false)) {
+				return;
+			}
+		}
+		scheduledPublish = publisher.schedule(this::publish, delay, MILLISECONDS);
+	}
+
+	private void publish() {
+		boolean published = false;
+		try {
+			List<EventOutbox.Entry> batch;
+			while (!(batch = eventOutbox.peek(batchSize)).isEmpty()) {
+				post(batch.stream().map(EventOutbox.Entry::getEvent).collect(toList()));
+				eventOutbox.acknowledge(batch.get(batch.size() - 1).getSequence());
+				delivered.addAndGet(batch.size());
+				lastDelivery = Instant.now();
+			}
+			published = true;
+		} catch (RuntimeException e) {
+			failures.incrementAndGet();
+			lastError = e.getMessage();
+		} finally {
+			synchronized (scheduleLock) {
+				if (published) {
+					retryDelay = 0;
+					scheduledPublish = null;
+					if (eventOutbox.size() > 0) {
+						schedulePublish(0);
+					}
+				} else {
+					retryDelay = retryDelay == 0 ? minRetryDelay : Math.min(retryDelay * 2, maxRetryDelay);
+					scheduledPublish = publisher.schedule(this::publish, retryDelay, MILLISECONDS);
+				}
+			}
+		}
+		if (!published) {
+			LOGGER.warn("Failed to publish events, {} pending, retrying in {} ms: {}", eventOutbox.size(), retryDelay, lastError);
+		}
+	}
+
+	private void post(List<RepositoryUpdateEvent> batch) {
 		HttpHeaders httpHeaders = new HttpHeaders();
 		httpHeaders.setContentType(MediaType.APPLICATION_JSON);
-		HttpEntity<RepositoryUpdateEvent> request = new HttpEntity<>(event, httpHeaders);
-		URI location = new RestTemplate().postForLocation("http://events:8080/events/", request);
-		System.err.println(location);
+		restTemplate.postForObject(eventsUrl + "batch", new HttpEntity<>(batch, httpHeaders), Void.class);
 	}
 }
@@ -1,31 +1,91 @@
 package no.lundesgaard.ci.repositories.service;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import no.lundesgaard.ci.repositories.mapper.RevCommitToCommitMapper;
 import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitField;
+import no.lundesgaard.ci.repositories.model.CommitLogQuery;
+import no.lundesgaard.ci.repositories.model.PackStatistics;
+import no.lundesgaard.ci.repositories.model.RefChange;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.AuthorRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
 @Service
 public class GitService {
 	@Autowired
 	private RevCommitToCommitMapper revCommitToCommitMapper;
+	@Autowired
+	private RepositoryPool repositoryPool;
+	@Autowired
+	private CommitChangesService commitChangesService;
+	@Autowired
+	private CommitSearchIndex commitSearchIndex;
 
 	@Value("${services.git.repositoriesRoot}")
 	private String repositoriesRoot;
+	@Value("${services.git.workTreesRoot:/repositories/.simply-ci-worktrees}")
+	private String workTreesRoot;
+	@Value("${services.git.storage:mirror}")
+	private String storage;
+	@Value("${services.git.singleBranch:false}")
+	private boolean singleBranch;
+	@Value("${services.maintenance.buildBitmaps:true}")
+	private boolean buildBitmaps;
+
+	private final Map<String, CommitIndex> commitIndexMap = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, ObjectId>> refSnapshotMap = new ConcurrentHashMap<>();
+	private final Map<String, String> refsVersionMap = new ConcurrentHashMap<>();
+	private final Map<String, ReentrantLock> lockMap = new ConcurrentHashMap<>();
 
 	public boolean repositoryExists(String repositoryName) {
 		File repositoryLocation = location(repositoryName);
@@ -33,40 +93,360 @@ public class GitService {
 	}
 
 	public void cloneRepository(String repositoryUrl, String repositoryName) {
-		try (Git git = Git.cloneRepository().setURI(repositoryUrl).setDirectory(location(repositoryName)).call()) {
-			git.getRepository().close();
-		} catch (GitAPIException e) {
+		ReentrantLock lock = lock(repositoryName);
+		lock.lock();
+		try {
+			if ("worktree".equals(storage)) {
+				Git.cloneRepository().setURI(repositoryUrl).setDirectory(location(repositoryName)).call().close();
+			} else {
+				cloneMirror(repositoryUrl, repositoryName);
+			}
+			repositoryPool.evict(repositoryName);
+		} catch (IOException | URISyntaxException | GitAPIException e) {
 			throw new GitServiceException(format("Failed to clone repository <%s> from <%s>: %s", repositoryName, repositoryUrl, e.getMessage()), e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	public List<Commit> pullAndGetCommitLogFor(String repositoryName) {
-		try (Git git = Git.open(location(repositoryName))) {
-			git.pull().call();
-			List<Commit> commits = revCommitStream(git).map(revCommitToCommitMapper::commit).collect(toList());
-			git.getRepository().close();
-			return commits;
+	public File checkoutWorkTree(String repositoryName, String commitId) {
+		if (!ObjectId.isId(commitId)) {
+			return null;
+		}
+		File workTree = workTree(repositoryName, commitId);
+		ReentrantLock lock = lock(repositoryName);
+		lock.lock();
+		try (Repository repository = repositoryPool.open(repositoryName); RevWalk revWalk = new RevWalk(repository)) {
+			if (workTree.isDirectory()) {
+				return workTree;
+			}
+			RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitId));
+			File temporaryWorkTree = new File(workTree.getPath() + ".tmp");
+			FileUtils.delete(temporaryWorkTree, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+			Git.init().setDirectory(temporaryWorkTree).call().close();
+			File alternates = new File(temporaryWorkTree, Constants.DOT_GIT + "/objects/info/alternates");
+			Files.write(alternates.toPath(), (new File(repository.getDirectory(), "objects").getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+			try (Repository workTreeRepository = new FileRepositoryBuilder().setWorkTree(temporaryWorkTree).build()) {
+				new DirCacheCheckout(workTreeRepository, workTreeRepository.lockDirCache(), commit.getTree()).checkout();
+				RefUpdate refUpdate = workTreeRepository.updateRef(Constants.HEAD, true);
+				refUpdate.setNewObjectId(commit);
+				refUpdate.forceUpdate();
+			}
+			Files.move(temporaryWorkTree.toPath(), workTree.toPath(), ATOMIC_MOVE);
+			return workTree;
+		} catch (MissingObjectException | IncorrectObjectTypeException e) {
+			return null;
 		} catch (IOException | GitAPIException e) {
-			throw new GitServiceException(format("Failed pull and get commit log for repository <%s>: %s", repositoryName, e.getMessage()), e);
+			throw new GitServiceException(format("Failed to check out commit <%s> of repository <%s>: %s", commitId, repositoryName, e.getMessage()), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean deleteWorkTree(String repositoryName, String commitId) {
+		if (!ObjectId.isId(commitId)) {
+			return false;
+		}
+		File workTree = workTree(repositoryName, commitId);
+		ReentrantLock lock = lock(repositoryName);
+		lock.lock();
+		try {
+			if (!workTree.isDirectory()) {
+				return false;
+			}
+			FileUtils.delete(workTree, FileUtils.RECURSIVE);
+			return true;
+		} catch (IOException e) {
+			throw new GitServiceException(format("Failed to delete work tree of commit <%s> in repository <%s>: %s", commitId, repositoryName, e.getMessage()), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void streamCommitLogFor(String repositoryName, CommitLogQuery query, Consumer<Commit> consumer) {
+		try (Repository repository = repositoryPool.open(repositoryName)) {
+			if (query.isFiltered() || !query.getFields().equals(CommitField.ALL)) {
+				walkCommitLog(repository, query, consumer);
+			} else {
+				List<Commit> commits = updateCommitIndex(repositoryName, repository);
+				int limit = query.getLimit() == null ? commits.size() : Math.min(query.getLimit(), commits.size());
+				commits.subList(0, limit).forEach(consumer);
+			}
+		} catch (IOException e) {
+			throw new GitServiceException(format("Failed to get commit log for repository <%s>: %s", repositoryName, e.getMessage()), e);
+		}
+	}
+
+	public boolean commitReachable(String repositoryName, String commitId) {
+		try (Repository repository = repositoryPool.open(repositoryName); RevWalk revWalk = new RevWalk(repository)) {
+			ObjectId head = repository.resolve(Constants.HEAD);
+			ObjectId commit = ObjectId.fromString(commitId);
+			if (head == null) {
+				return false;
+			}
+			return revWalk.isMergedInto(revWalk.parseCommit(commit), revWalk.parseCommit(head));
+		} catch (MissingObjectException | IncorrectObjectTypeException e) {
+			return false;
+		} catch (IOException e) {
+			throw new GitServiceException(format("Failed to look up commit <%s> in repository <%s>: %s", commitId, repositoryName, e.getMessage()), e);
+		}
+	}
+
+	public List<RefChange> pullAndGetRefChangesFor(String repositoryName) {
+		ReentrantLock lock = lock(repositoryName);
+		lock.lock();
+		try (Repository repository = repositoryPool.open(repositoryName); Git git = Git.wrap(repository)) {
+			Map<String, ObjectId> refs = pullIfRemoteChanged(git);
+			updateCommitIndex(repositoryName, repository);
+			refsVersionMap.put(repositoryName, refsVersion(refs));
+			return refChanges(repository, refSnapshotMap.put(repositoryName, refs), refs);
+		} catch (IOException | URISyntaxException | GitAPIException e) {
+			throw new GitServiceException(format("Failed pull and get ref changes for repository <%s>: %s", repositoryName, e.getMessage()), e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	public Commit pullAndGetLastCommitFor(String repositoryName) {
-		try (Git git = Git.open(location(repositoryName))) {
-			git.pull().call();
-			Commit commit = revCommitToCommitMapper.commit(git.log().call().iterator().next());
-			git.getRepository().close();
-			return commit;
+	public String refsVersionFor(String repositoryName) {
+		return refsVersionMap.get(repositoryName);
+	}
+
+	public Commit lastCommitFor(String repositoryName) {
+		List<Commit> commits = commitIndex(repositoryName).commits();
+		return commits.isEmpty() ? null : commits.get(0);
+	}
+
+	public PackStatistics packStatisticsFor(String repositoryName) {
+		try (Repository repository = repositoryPool.open(repositoryName); Git git = Git.wrap(repository)) {
+			Properties statistics = git.gc().getStatistics();
+			return new PackStatistics(
+					statistic(statistics, "numberOfLooseObjects"),
+					statistic(statistics, "sizeOfLooseObjects"),
+					statistic(statistics, "numberOfPackFiles"),
+					statistic(statistics, "numberOfPackedObjects"),
+					statistic(statistics, "sizeOfPackedObjects"),
+					statistic(statistics, "numberOfLooseRefs"),
+					statistic(statistics, "numberOfPackedRefs"));
+		} catch (IOException | GitAPIException e) {
+			throw new GitServiceException(format("Failed to get pack statistics for repository <%s>: %s", repositoryName, e.getMessage()), e);
+		}
+	}
+
+	public boolean collectGarbage(String repositoryName) {
+		ReentrantLock lock = lock(repositoryName);
+		if (!lock.tryLock()) {
+			return false;
+		}
+		try (Repository repository = repositoryPool.open(repositoryName); Git git = Git.wrap(repository)) {
+			repository.getConfig().setBoolean("pack", null, "buildbitmaps", buildBitmaps);
+			git.gc().call();
+			return true;
 		} catch (IOException | GitAPIException e) {
-			throw new GitServiceException(format("Failed pull and get last commit for repository <%s>: %s", repositoryName, e.getMessage()), e);
+			throw new GitServiceException(format("Failed to collect garbage in repository <%s>: %s", repositoryName, e.getMessage()), e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
+	private long statistic(Properties statistics, String key) {
+		Object value = statistics.get(key);
+		return value instanceof Number ? ((Number) value).longValue() : 0;
+	}
+
+	private ReentrantLock lock(String repositoryName) {
+		return lockMap.computeIfAbsent(repositoryName, name -> new ReentrantLock());
+	}
+
 	private File location(String repositoryName) {
 		return new File(repositoriesRoot, repositoryName);
 	}
 
-	private Stream<RevCommit> revCommitStream(Git git) throws GitAPIException {
-		return StreamSupport.stream(git.log().call().spliterator(), false);
+	private File workTree(String repositoryName, String commitId) {
+		return new File(new File(workTreesRoot, repositoryName), commitId.toLowerCase());
+	}
+
+	private void cloneMirror(String repositoryUrl, String repositoryName) throws IOException, URISyntaxException, GitAPIException {
+		Collection<Ref> advertisedRefs = Git.lsRemoteRepository().setRemote(repositoryUrl).call();
+		String defaultBranch = defaultBranch(advertisedRefs);
+		try (Git git = Git.init().setBare(true).setDirectory(location(repositoryName)).call()) {
+			StoredConfig config = git.getRepository().getConfig();
+			RemoteConfig remoteConfig = new RemoteConfig(config, Constants.DEFAULT_REMOTE_NAME);
+			remoteConfig.addURI(new URIish(repositoryUrl));
+			if (singleBranch && defaultBranch != null) {
+				remoteConfig.addFetchRefSpec(new RefSpec(defaultBranch + ":" + defaultBranch).setForceUpdate(true));
+			} else {
+				remoteConfig.addFetchRefSpec(new RefSpec("+refs/heads/*:refs/heads/*"));
+				remoteConfig.addFetchRefSpec(new RefSpec("+refs/tags/*:refs/tags/*"));
+			}
+			remoteConfig.update(config);
+			config.setBoolean("remote", Constants.DEFAULT_REMOTE_NAME, "mirror", true);
+			config.save();
+			git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setRemoveDeletedRefs(true).call();
+			if (defaultBranch != null) {
+				git.getRepository().updateRef(Constants.HEAD).link(defaultBranch);
+			}
+		}
+	}
+
+	private String defaultBranch(Collection<Ref> advertisedRefs) {
+		Ref head = advertisedRefs.stream().filter(ref -> Constants.HEAD.equals(ref.getName())).findFirst().orElse(null);
+		if (head == null) {
+			return null;
+		}
+		if (head.isSymbolic()) {
+			return head.getTarget().getName();
+		}
+		List<String> branches = advertisedRefs.stream()
+				.filter(ref -> ref.getName().startsWith(Constants.R_HEADS) && head.getObjectId().equals(ref.getObjectId()))
+				.map(Ref::getName)
+				.sorted()
+				.collect(toList());
+		if (branches.contains(Constants.R_HEADS + Constants.MASTER)) {
+			return Constants.R_HEADS + Constants.MASTER;
+		}
+		return branches.isEmpty() ? null : branches.get(0);
+	}
+
+	private Map<String, ObjectId> pullIfRemoteChanged(Git git) throws IOException, URISyntaxException, GitAPIException {
+		List<RefSpec> fetchRefSpecs = new RemoteConfig(git.getRepository().getConfig(), Constants.DEFAULT_REMOTE_NAME).getFetchRefSpecs();
+		Map<String, ObjectId> advertisedRefs = advertisedRefs(git, fetchRefSpecs);
+		if (!advertisedRefs.equals(trackedRefs(git.getRepository(), fetchRefSpecs))) {
+			git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setRemoveDeletedRefs(true).call();
+			if (!git.getRepository().isBare()) {
+				mergeTrackingBranch(git);
+			}
+		}
+		return advertisedRefs;
+	}
+
+	private void mergeTrackingBranch(Git git) throws IOException, GitAPIException {
+		Repository repository = git.getRepository();
+		String trackingBranch = new BranchConfig(repository.getConfig(), repository.getBranch()).getRemoteTrackingBranch();
+		ObjectId trackingCommit = trackingBranch == null ? null : repository.resolve(trackingBranch);
+		if (trackingCommit != null) {
+			git.merge().include(trackingCommit).call();
+		}
+	}
+
+	private String refsVersion(Map<String, ObjectId> refs) {
+		StringBuilder refList = new StringBuilder();
+		new TreeMap<>(refs).forEach((ref, commitId) -> refList.append(ref).append(' ').append(commitId.getName()).append('\n'));
+		return DigestUtils.md5DigestAsHex(refList.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<RefChange> refChanges(Repository repository, Map<String, ObjectId> previousRefs, Map<String, ObjectId> refs) throws IOException {
+		if (previousRefs == null) {
+			Ref head = repository.getRef(Constants.HEAD);
+			if (head == null || head.getObjectId() == null) {
+				return emptyList();
+			}
+			return singletonList(new RefChange(head.getTarget().getName(), null, head.getObjectId().getName()));
+		}
+		List<RefChange> refChanges = new ArrayList<>();
+		refs.forEach((ref, commitId) -> {
+			ObjectId previousCommitId = previousRefs.get(ref);
+			if (!commitId.equals(previousCommitId)) {
+				refChanges.add(new RefChange(ref, previousCommitId == null ? null : previousCommitId.getName(), commitId.getName()));
+			}
+		});
+		previousRefs.forEach((ref, previousCommitId) -> {
+			if (!refs.containsKey(ref)) {
+				refChanges.add(new RefChange(ref, previousCommitId.getName(), null));
+			}
+		});
+		return refChanges;
+	}
+
+	private Map<String, ObjectId> advertisedRefs(Git git, List<RefSpec> fetchRefSpecs) throws GitAPIException {
+		Map<String, ObjectId> refs = new HashMap<>();
+		for (Ref ref : git.lsRemote().setRemote(Constants.DEFAULT_REMOTE_NAME).call()) {
+			if (fetchRefSpecs.stream().anyMatch(refSpec -> refSpec.matchSource(ref.getName()))) {
+				refs.put(ref.getName(), ref.getObjectId());
+			}
+		}
+		return refs;
+	}
+
+	private Map<String, ObjectId> trackedRefs(Repository repository, List<RefSpec> fetchRefSpecs) throws IOException {
+		Map<String, ObjectId> refs = new HashMap<>();
+		for (RefSpec refSpec : fetchRefSpecs) {
+			if (refSpec.isWildcard()) {
+				String prefix = refSpec.getDestination().substring(0, refSpec.getDestination().indexOf('*'));
+				for (Ref ref : repository.getRefDatabase().getRefs(prefix).values()) {
+					if (!ref.isSymbolic() && refSpec.matchDestination(ref.getName())) {
+						refs.put(refSpec.expandFromDestination(ref.getName()).getSource(), ref.getObjectId());
+					}
+				}
+			} else {
+				Ref ref = repository.getRef(refSpec.getDestination());
+				if (ref != null) {
+					refs.put(refSpec.getSource(), ref.getObjectId());
+				}
+			}
+		}
+		return refs;
+	}
+
+	private void walkCommitLog(Repository repository, CommitLogQuery query, Consumer<Commit> consumer) throws IOException {
+		try (RevWalk revWalk = new RevWalk(repository)) {
+			revWalk.setRetainBody(revCommitToCommitMapper.requiresBody(query.getFields()));
+			if (query.getAfter() == null) {
+				ObjectId head = repository.resolve(Constants.HEAD);
+				if (head == null) {
+					return;
+				}
+				revWalk.markStart(revWalk.parseCommit(head));
+			} else {
+				for (RevCommit parent : revWalk.parseCommit(ObjectId.fromString(query.getAfter())).getParents()) {
+					revWalk.markStart(revWalk.parseCommit(parent));
+				}
+			}
+			revWalk.setRevFilter(revFilter(query));
+			Function<RevCommit, Commit> commitMapper = revCommitToCommitMapper.commitMapper(query.getFields());
+			int count = 0;
+			for (RevCommit revCommit : revWalk) {
+				consumer.accept(commitMapper.apply(revCommit));
+				revCommit.disposeBody();
+				if (query.getLimit() != null && ++count >= query.getLimit()) {
+					break;
+				}
+			}
+		}
+	}
+
+	private RevFilter revFilter(CommitLogQuery query) {
+		List<RevFilter> revFilters = new ArrayList<>();
+		if (query.getSince() != null && query.getUntil() != null) {
+			revFilters.add(CommitTimeRevFilter.between(Date.from(query.getSince().toInstant()), Date.from(query.getUntil().toInstant())));
+		} else if (query.getSince() != null) {
+			revFilters.add(CommitTimeRevFilter.after(Date.from(query.getSince().toInstant())));
+		} else if (query.getUntil() != null) {
+			revFilters.add(CommitTimeRevFilter.before(Date.from(query.getUntil().toInstant())));
+		}
+		if (query.getAuthor() != null) {
+			revFilters.add(AuthorRevFilter.create(Pattern.quote(query.getAuthor())));
+		}
+		if (revFilters.isEmpty()) {
+			return RevFilter.ALL;
+		}
+		if (revFilters.size() == 1) {
+			return revFilters.get(0);
+		}
+		return AndRevFilter.create(revFilters);
+	}
+
+	private List<Commit> updateCommitIndex(String repositoryName, Repository repository) throws IOException {
+		return commitIndex(repositoryName).update(repository, revCommitToCommitMapper.commitMapper(CommitField.ALL), (addedCommits, incremental) -> {
+			if (incremental) {
+				commitSearchIndex.add(repositoryName, addedCommits);
+			} else {
+				commitSearchIndex.replace(repositoryName, addedCommits);
+			}
+			commitChangesService.prefetch(repositoryName, addedCommits);
+		});
+	}
+
+	private CommitIndex commitIndex(String repositoryName) {
+		return commitIndexMap.computeIfAbsent(repositoryName, name -> new CommitIndex());
 	}
 }
@@ -0,0 +1,77 @@
+package no.lundesgaard.ci.repositories.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import no.lundesgaard.ci.repositories.model.PackStatistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class RepositoryMaintenanceScheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryMaintenanceScheduler.class);
+
+	@Autowired
+	private RepositoryRegistry repositoryRegistry;
+	@Autowired
+	private GitService gitService;
+
+	@Value("${services.maintenance.looseObjects:1000}")
+	private long looseObjectsThreshold;
+	@Value("${services.maintenance.packFiles:10}")
+	private long packFilesThreshold;
+
+	private final Map<String, Maintenance> maintenanceMap = new ConcurrentHashMap<>();
+
+	@Scheduled(initialDelayString = "${services.maintenance.interval:600000}", fixedDelayString = "${services.maintenance.interval:600000}")
+	public void maintainRepositories() {
+		for (String name : repositoryRegistry.findAllNames()) {
+			try {
+				if (gitService.repositoryExists(name)) {
+					maintainRepository(name);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.warn("Maintenance of repository <{}> failed: {}", name, e.getMessage());
+			}
+		}
+	}
+
+	public PackStatistics statistics(String name) {
+		PackStatistics statistics = gitService.packStatisticsFor(name);
+		Maintenance maintenance = maintenanceMap.get(name);
+		if (maintenance == null) {
+			return statistics;
+		}
+		return new PackStatistics(statistics, maintenance.startedAt, maintenance.duration);
+	}
+
+	private void maintainRepository(String name) {
+		PackStatistics statistics = gitService.packStatisticsFor(name);
+		if (statistics.getLooseObjects() < looseObjectsThreshold && statistics.getPackFiles() < packFilesThreshold) {
+			return;
+		}
+		Instant startedAt = Instant.now();
+		if (gitService.collectGarbage(name)) {
+			long duration = Duration.between(startedAt, Instant.now()).toMillis();
+			maintenanceMap.put(name, new Maintenance(startedAt, duration));
+			LOGGER.info("Repacked repository <{}> with {} loose objects and {} packs in {} ms", name, statistics.getLooseObjects(), statistics.getPackFiles(), duration);
+		}
+	}
+
+	private static class Maintenance {
+		private final Instant startedAt;
+		private final long duration;
+
+		private Maintenance(Instant startedAt, long duration) {
+			this.startedAt = startedAt;
+			this.duration = duration;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.repositories.model.PollingStatistics;
+import no.lundesgaard.ci.repositories.model.Repository;
+import no.lundesgaard.ci.repositories.model.RepositoryPollingStatistics;
+
+import org.eclipse.jgit.transport.URIish;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class RepositoryPollingScheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryPollingScheduler.class);
+	private static final long REMOTE_BUSY_DELAY = 1000;
+	private static final String LOCAL_REMOTE = "local";
+
+	@Autowired
+	private RepositoryRegistry repositoryRegistry;
+	@Autowired
+	private RepositoryRefresher repositoryRefresher;
+
+	@Value("${services.polling.workers:4}")
+	private int workerCount;
+	@Value("${services.polling.minInterval:5000}")
+	private long minInterval;
+	@Value("${services.polling.maxInterval:300000}")
+	private long maxInterval;
+	@Value("${services.polling.jitter:0.2}")
+	private double jitter;
+	@Value("${services.polling.remoteConcurrency:2}")
+	private int remoteConcurrency;
+	@Value("${services.polling.webhookDelay:1000}")
+	private long webhookDelay;
+	@Value("${services.polling.fallbackInterval:300000}")
+	private long fallbackInterval;
+	@Value("${services.polling.webhookWindow:3600000}")
+	private long webhookWindow;
+
+	private final Map<String, PollingState> pollingStateMap = new ConcurrentHashMap<>();
+	private final Map<String, Semaphore> remoteSemaphoreMap = new ConcurrentHashMap<>();
+	private ScheduledExecutorService timer;
+	private ThreadPoolExecutor workers;
+
+	@PostConstruct
+	public void start() {
+		timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("polling-timer-"));
+		workers = new ThreadPoolExecutor(workerCount, workerCount, 0, MILLISECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("polling-worker-"));
+		repositoryRegistry.findAll().forEach(repository -> schedule(repository.getName(), repository.getUrl()));
+	}
+
+	@PreDestroy
+	public void stop() {
+		timer.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	public void schedule(String repositoryName, String repositoryUrl) {
+		PollingState state = new PollingState(repositoryName, remote(repositoryUrl), minInterval);
+		PollingState existingState = pollingStateMap.putIfAbsent(repositoryName, state);
+		if (existingState != null) {
+			existingState.remote = state.remote;
+			return;
+		}
+		scheduleIn(state, ThreadLocalRandom.current().nextLong(minInterval));
+	}
+
+	public boolean trigger(String repositoryName) {
+		return pollWithin(repositoryName, webhookDelay, true);
+	}
+
+	public boolean revalidate(String repositoryName) {
+		return pollWithin(repositoryName, 0, false);
+	}
+
+	private boolean pollWithin(String repositoryName, long delay, boolean webhook) {
+		PollingState state = pollingStateMap.get(repositoryName);
+		if (state == null) {
+			return false;
+		}
+		synchronized (state) {
+			if (webhook) {
+				state.lastWebhook = currentTimeMillis();
+			}
+			if (state.polling) {
+				state.pollAgain |= webhook;
+			} else if (!state.queued.get() && state.dueAt > currentTimeMillis() + delay) {
+				scheduleIn(state, delay);
+			}
+		}
+		return true;
+	}
+
+	public PollingStatistics statistics() {
+		long now = currentTimeMillis();
+		List<RepositoryPollingStatistics> repositories = pollingStateMap.values().stream()
+				.map(state -> new RepositoryPollingStatistics(state.name, state.remote, state.interval, state.lag(now)))
+				.collect(toList());
+		long maxLag = repositories.stream().mapToLong(RepositoryPollingStatistics::getLag).max().orElse(0);
+		return new PollingStatistics(workerCount, workers.getActiveCount(), workers.getQueue().size(), maxLag, repositories);
+	}
+
+	private void scheduleIn(PollingState state, long delay) {
+		synchronized (state) {
+			if (state.next != null) {
+				state.next.cancel(false);
+			}
+			state.dueAt = currentTimeMillis() + delay;
+			state.next = timer.schedule(() -> enqueue(state), delay, MILLISECONDS);
+		}
+	}
+
+	private void enqueue(PollingState state) {
+		if (state.queued.compareAndSet(false, true)) {
+			workers.execute(() -> poll(state));
+		}
+	}
+
+	private void poll(PollingState state) {
+		Repository repository = repositoryRegistry.find(state.name);
+		if (repository == null) {
+			cancel(state);
+			return;
+		}
+		state.lastLag = Math.max(0, currentTimeMillis() - state.dueAt);
+		Semaphore remoteSemaphore = remoteSemaphoreMap.computeIfAbsent(state.remote, remote -> new Semaphore(remoteConcurrency));
+		if (!remoteSemaphore.tryAcquire()) {
+			state.queued.set(false);
+			scheduleIn(state, jittered(REMOTE_BUSY_DELAY));
+			return;
+		}
+		synchronized (state) {
+			state.polling = true;
+		}
+		boolean changed = false;
+		try {
+			changed = repositoryRefresher.refresh(repository);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Failed to poll repository <{}>: {}", state.name, e.getMessage());
+		} finally {
+			remoteSemaphore.release();
+		}
+		synchronized (state) {
+			state.polling = false;
+			state.queued.set(false);
+			state.interval = nextInterval(state, changed);
+			scheduleIn(state, state.pollAgain ? webhookDelay : jittered(state.interval));
+			state.pollAgain = false;
+		}
+	}
+
+	private void cancel(PollingState state) {
+		synchronized (state) {
+			pollingStateMap.remove(state.name, state);
+			if (state.next != null) {
+				state.next.cancel(false);
+			}
+			state.queued.set(false);
+		}
+		LOGGER.info("Stopped polling repository <{}>, it is no longer registered", state.name);
+	}
+
+	private long nextInterval(PollingState state, boolean changed) {
+		if (currentTimeMillis() - state.lastWebhook < webhookWindow) {
+			return fallbackInterval;
+		}
+		return changed ? Math.max(minInterval, state.interval / 2) : Math.min(maxInterval, state.interval * 3 / 2);
+	}
+
+	private long jittered(long delay) {
+		double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+		return Math.max(0, (long) (delay * factor));
+	}
+
+	private String remote(String repositoryUrl) {
+		try {
+			String host = new URIish(repositoryUrl).getHost();
+			return host == null ? LOCAL_REMOTE : host;
+		} catch (URISyntaxException e) {
+			return repositoryUrl;
+		}
+	}
+
+	private static class PollingState {
+		private final String name;
+		private final AtomicBoolean queued = new AtomicBoolean();
+		private volatile String remote;
+		private volatile long interval;
+		private volatile long dueAt;
+		private volatile long lastLag;
+		private ScheduledFuture<?> next;
+		private long lastWebhook;
+		private boolean polling;
+		private boolean pollAgain;
+
+		private PollingState(String name, String remote, long interval) {
+			this.name = name;
+			this.remote = remote;
+			this.interval = interval;
+		}
+
+		private long lag(long now) {
+			return queued.get() ? Math.max(0, now - dueAt) : lastLag;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.util.FS;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class RepositoryPool {
+	@Value("${services.git.repositoriesRoot}")
+	private String repositoriesRoot;
+	@Value("${services.git.pool.maxOpen:64}")
+	private int maxOpen;
+	@Value("${services.git.pool.idleTimeout:600000}")
+	private long idleTimeout;
+	@Value("${services.git.windowCache.packedGitLimit:67108864}")
+	private long packedGitLimit;
+	@Value("${services.git.windowCache.packedGitWindowSize:8192}")
+	private int packedGitWindowSize;
+	@Value("${services.git.windowCache.packedGitOpenFiles:128}")
+	private int packedGitOpenFiles;
+	@Value("${services.git.windowCache.packedGitMMAP:false}")
+	private boolean packedGitMMAP;
+	@Value("${services.git.windowCache.deltaBaseCacheLimit:10485760}")
+	private int deltaBaseCacheLimit;
+	@Value("${services.git.windowCache.streamFileThreshold:52428800}")
+	private int streamFileThreshold;
+
+	private final Map<String, PooledRepository> repositoryMap = new LinkedHashMap<>(16, 0.75f, true);
+
+	@PostConstruct
+	public void installWindowCacheConfig() {
+		WindowCacheConfig windowCacheConfig = new WindowCacheConfig();
+		windowCacheConfig.setPackedGitLimit(packedGitLimit);
+		windowCacheConfig.setPackedGitWindowSize(packedGitWindowSize);
+		windowCacheConfig.setPackedGitOpenFiles(packedGitOpenFiles);
+		windowCacheConfig.setPackedGitMMAP(packedGitMMAP);
+		windowCacheConfig.setDeltaBaseCacheLimit(deltaBaseCacheLimit);
+		windowCacheConfig.setStreamFileThreshold(streamFileThreshold);
+		windowCacheConfig.install();
+	}
+
+	public Repository open(String repositoryName) throws IOException {
+		synchronized (repositoryMap) {
+			PooledRepository pooledRepository = repositoryMap.get(repositoryName);
+			if (pooledRepository == null) {
+				File location = new File(repositoriesRoot, repositoryName);
+				pooledRepository = new PooledRepository(RepositoryCache.FileKey.lenient(location, FS.DETECTED).open(true));
+				repositoryMap.put(repositoryName, pooledRepository);
+				evictEldest();
+			}
+			pooledRepository.lastUsed = currentTimeMillis();
+			pooledRepository.repository.incrementOpen();
+			return pooledRepository.repository;
+		}
+	}
+
+	public void evict(String repositoryName) {
+		synchronized (repositoryMap) {
+			PooledRepository pooledRepository = repositoryMap.remove(repositoryName);
+			if (pooledRepository != null) {
+				pooledRepository.repository.close();
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${services.git.pool.evictionInterval:60000}")
+	public void evictIdleRepositories() {
+		long idleSince = currentTimeMillis() - idleTimeout;
+		synchronized (repositoryMap) {
+			Iterator<PooledRepository> iterator = repositoryMap.values().iterator();
+			while (iterator.hasNext()) {
+				PooledRepository pooledRepository = iterator.next();
+				if (pooledRepository.lastUsed < idleSince) {
+					iterator.remove();
+					pooledRepository.repository.close();
+				}
+			}
+		}
+	}
+
+	@PreDestroy
+	public void closeAll() {
+		synchronized (repositoryMap) {
+			repositoryMap.values().forEach(pooledRepository -> pooledRepository.repository.close());
+			repositoryMap.clear();
+		}
+	}
+
+	private void evictEldest() {
+		Iterator<PooledRepository> iterator = repositoryMap.values().iterator();
+		while (repositoryMap.size() > maxOpen && iterator.hasNext()) {
+			PooledRepository pooledRepository = iterator.next();
+			iterator.remove();
+			pooledRepository.repository.close();
+		}
+	}
+
+	private static class PooledRepository {
+		private final Repository repository;
+		private long lastUsed;
+
+		private PooledRepository(Repository repository) {
+			this.repository = repository;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package no.lundesgaard.ci.repositories.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import no.lundesgaard.ci.repositories.model.RefChange;
+import no.lundesgaard.ci.repositories.model.Repository;
+import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class RepositoryRefresher {
+	private final Map<String, CompletableFuture<Boolean>> refreshMap = new ConcurrentHashMap<>();
+
+	@Autowired
+	private GitService gitService;
+	@Autowired
+	private EventService eventsService;
+
+	public boolean refresh(Repository repository) {
+		CompletableFuture<Boolean> refresh = new CompletableFuture<>();
+		CompletableFuture<Boolean> inFlightRefresh = refreshMap.putIfAbsent(repository.getName(), refresh);
+		if (inFlightRefresh != null) {
+			return join(inFlightRefresh);
+		}
+		try {
+			refresh.complete(checkForNewCommits(repository));
+		} catch (RuntimeException e) {
+			refresh.completeExceptionally(e);
+		} finally {
+			refreshMap.remove(repository.getName(), refresh);
+		}
+		return join(refresh);
+	}
+
+	private boolean join(CompletableFuture<Boolean> refresh) {
+		try {
+			return refresh.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private boolean checkForNewCommits(Repository repository) {
+		cloneIfRepositoryDoesNotExists(repository);
+		List<RefChange> refChanges = gitService.pullAndGetRefChangesFor(repository.getName());
+		repository.setLastChecked(Instant.now());
+		repository.setLastCommit(gitService.lastCommitFor(repository.getName()));
+		refChanges.forEach(refChange -> eventsService.createEvent(new RepositoryUpdateEvent(repository.getName(), refChange)));
+		return !refChanges.isEmpty();
+	}
+
+	private void cloneIfRepositoryDoesNotExists(Repository repository) {
+		if (!gitService.repositoryExists(repository.getName())) {
+			gitService.cloneRepository(repository.getUrl(), repository.getName());
+		}
+	}
+}
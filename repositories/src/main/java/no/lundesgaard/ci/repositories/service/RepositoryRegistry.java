@@ -0,0 +1,173 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import no.lundesgaard.ci.repositories.model.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class RepositoryRegistry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryRegistry.class);
+	private static final int COMPACTION_THRESHOLD = 1000;
+	private static final Pattern INVALID_NAME = Pattern.compile("|-|\\.|\\.\\.|.*[/\\\\].*");
+
+	@Value("${services.repositories.registryFile:/repositories/.simply-ci-registry}")
+	private String registryPath;
+
+	private final Map<String, Repository> repositoryMap = new ConcurrentHashMap<>();
+	private File registryFile;
+	private FileOutputStream registryOutputStream;
+	private DataOutputStream registryOutput;
+
+	@PostConstruct
+	public synchronized void load() throws IOException {
+		registryFile = new File(registryPath);
+		int records = 0;
+		if (registryFile.exists()) {
+			records = replay();
+		}
+		if (records > COMPACTION_THRESHOLD && records > 2 * repositoryMap.size()) {
+			compact();
+		}
+		open();
+		if (records == 0) {
+			register(new Repository("simply-ci", "https://github.com/georglundesgaard/simply-ci.git"));
+		}
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		registryOutput.close();
+	}
+
+	public Repository find(String name) {
+		return repositoryMap.get(name);
+	}
+
+	public boolean contains(String name) {
+		return repositoryMap.containsKey(name);
+	}
+
+	public Collection<String> findAllNames() {
+		return repositoryMap.keySet();
+	}
+
+	public List<Repository> findAll() {
+		return repositoryMap.values().stream().collect(toList());
+	}
+
+	public boolean isValidName(String name) {
+		return name != null && !INVALID_NAME.matcher(name).matches();
+	}
+
+	public synchronized void register(Repository repository) {
+		if (!isValidName(repository.getName())) {
+			throw new RepositoryRegistryException(format("Invalid repository name <%s>", repository.getName()), null);
+		}
+		try {
+			write(registryOutput, repository);
+			registryOutput.flush();
+			registryOutputStream.getChannel().force(false);
+		} catch (IOException e) {
+			throw new RepositoryRegistryException(format("Failed to register repository <%s>: %s", repository.getName(), e.getMessage()), e);
+		}
+		Repository registeredRepository = repositoryMap.get(repository.getName());
+		if (registeredRepository == null) {
+			repositoryMap.put(repository.getName(), repository);
+		} else {
+			registeredRepository.setUrl(repository.getUrl());
+		}
+	}
+
+	private int replay() throws IOException {
+		int records = 0;
+		long validLength = 0;
+		byte[] bytes = Files.readAllBytes(registryFile.toPath());
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			while (validLength < bytes.length) {
+				String name = input.readUTF();
+				String url = input.readUTF();
+				repositoryMap.put(name, new Repository(name, url));
+				validLength += recordLength(name, url);
+				records++;
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Truncating torn record at position {} of repository registry <{}>: {}", validLength, registryFile, e.toString());
+			truncate(validLength);
+		}
+		return records;
+	}
+
+	private void truncate(long validLength) throws IOException {
+		if (registryFile.length() > validLength) {
+			try (RandomAccessFile file = new RandomAccessFile(registryFile, "rw")) {
+				file.setLength(validLength);
+			}
+		}
+	}
+
+	private void compact() throws IOException {
+		File compactedFile = new File(registryFile.getPath() + ".compacted");
+		try (FileOutputStream outputStream = new FileOutputStream(compactedFile);
+			 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+			for (Repository repository : repositoryMap.values()) {
+				write(output, repository);
+			}
+			output.flush();
+			outputStream.getChannel().force(true);
+		}
+		Files.move(compactedFile.toPath(), registryFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+
+	private void open() throws IOException {
+		File parent = registryFile.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			Files.createDirectories(parent.toPath());
+		}
+		registryOutputStream = new FileOutputStream(registryFile, true);
+		registryOutput = new DataOutputStream(new BufferedOutputStream(registryOutputStream));
+	}
+
+	private void write(DataOutputStream output, Repository repository) throws IOException {
+		output.writeUTF(repository.getName());
+		output.writeUTF(repository.getUrl());
+	}
+
+	private long recordLength(String name, String url) {
+		return utfLength(name) + utfLength(url);
+	}
+
+	private long utfLength(String value) {
+		long length = 2;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+		}
+		return length;
+	}
+}
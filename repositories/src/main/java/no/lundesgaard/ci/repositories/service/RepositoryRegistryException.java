@@ -0,0 +1,7 @@
+package no.lundesgaard.ci.repositories.service;
+
+public class RepositoryRegistryException extends RuntimeException {
+	public RepositoryRegistryException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
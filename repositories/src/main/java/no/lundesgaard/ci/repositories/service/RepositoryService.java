@@ -2,73 +2,141 @@ package no.lundesgaard.ci.repositories.service;
 
 import static java.util.stream.Collectors.toList;
 
-import java.util.HashMap;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitChanges;
+import no.lundesgaard.ci.repositories.model.CommitLogQuery;
+import no.lundesgaard.ci.repositories.model.CommitSearchHit;
+import no.lundesgaard.ci.repositories.model.CommitSearchQuery;
+import no.lundesgaard.ci.repositories.model.PackStatistics;
 import no.lundesgaard.ci.repositories.model.Repository;
-import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RepositoryService {
-	private Map<String, Repository> repositoryMap = new HashMap<>();
-	{
-		Repository repository = new Repository("simply-ci", "https://github.com/georglundesgaard/simply-ci.git");
-		repositoryMap.put(repository.getName(), repository);
-	}
-
+	@Autowired
+	private RepositoryRegistry repositoryRegistry;
 	@Autowired
 	private GitService gitService;
 	@Autowired
-	private EventService eventsService;
+	private CommitChangesService commitChangesService;
+	@Autowired
+	private CommitSearchIndex commitSearchIndex;
+	@Autowired
+	private RepositoryRefresher repositoryRefresher;
+	@Autowired
+	private RepositoryPollingScheduler pollingScheduler;
+	@Autowired
+	private RepositoryMaintenanceScheduler maintenanceScheduler;
+
+	@Value("${services.repositories.maxAge:10000}")
+	private long maxAge;
+	@Value("${services.repositories.maxStale:600000}")
+	private long maxStale;
 
 	public List<String> findAllRepositoryNames() {
-		return repositoryMap.keySet().stream().collect(toList());
+		return repositoryRegistry.findAllNames().stream().collect(toList());
 	}
 
 	public String createRepository(Repository repository) {
-		repositoryMap.put(repository.getName(), repository);
+		if (!repositoryRegistry.isValidName(repository.getName())) {
+			return null;
+		}
+		repositoryRegistry.register(repository);
+		pollingScheduler.schedule(repository.getName(), repository.getUrl());
 		return repository.getName();
 	}
 
 	public Repository findRepository(String name) {
-		Repository repository = repositoryMap.get(name);
+		Repository repository = repositoryRegistry.find(name);
+		if (repository == null) {
+			return null;
+		}
+		revalidate(repository);
+		return new Repository(repository, repository.getLastCommit());
+	}
+
+	public boolean repositoryCommitsExists(String name) {
+		return repositoryRegistry.contains(name) && gitService.repositoryExists(name);
+	}
+
+	public String findRefsVersion(String name) {
+		Repository repository = repositoryRegistry.find(name);
+		if (repository == null) {
+			return null;
+		}
+		Instant lastChecked = repository.getLastChecked();
+		if (lastChecked != null && Duration.between(lastChecked, Instant.now()).toMillis() > maxAge) {
+			pollingScheduler.revalidate(name);
+		}
+		return gitService.refsVersionFor(name);
+	}
+
+	public boolean commitReachable(String name, String commitId) {
+		return repositoryCommitsExists(name) && gitService.commitReachable(name, commitId);
+	}
+
+	public boolean revalidateRepository(String name) {
+		Repository repository = repositoryRegistry.find(name);
 		if (repository == null) {
+			return false;
+		}
+		revalidate(repository);
+		return true;
+	}
+
+	public void findRepositoryCommits(String name, CommitLogQuery query, Consumer<Commit> consumer) {
+		gitService.streamCommitLogFor(name, query, consumer);
+	}
+
+	public File checkoutWorkTree(String name, String commitId) {
+		if (!repositoryCommitsExists(name)) {
 			return null;
 		}
-		cloneIfRepositoryDoesNotExists(repository);
-		Commit lastCommit = gitService.pullAndGetLastCommitFor(name);
-		return new Repository(repository, lastCommit);
+		return gitService.checkoutWorkTree(name, commitId);
 	}
 
-	private void cloneIfRepositoryDoesNotExists(Repository repository) {
-		if (!gitService.repositoryExists(repository.getName())) {
-			gitService.cloneRepository(repository.getUrl(), repository.getName());
+	public boolean deleteWorkTree(String name, String commitId) {
+		return repositoryRegistry.contains(name) && gitService.deleteWorkTree(name, commitId);
+	}
+
+	public CommitChanges findCommitChanges(String name, String commitId) {
+		if (!repositoryCommitsExists(name)) {
+			return null;
 		}
+		return commitChangesService.findChanges(name, commitId);
+	}
+
+	public List<CommitSearchHit> searchCommits(CommitSearchQuery query) {
+		return commitSearchIndex.search(query);
 	}
 
-	public List<Commit> findRepositoryCommits(String name) {
-		if (repositoryMap.containsKey(name) && gitService.repositoryExists(name)) {
-			return gitService.pullAndGetCommitLogFor(name);
+	public PackStatistics findPackStatistics(String name) {
+		if (!repositoryCommitsExists(name)) {
+			return null;
 		}
-		return null;
+		return maintenanceScheduler.statistics(name);
+	}
+
+	public boolean notifyPush(String name) {
+		return repositoryRegistry.contains(name) && pollingScheduler.trigger(name);
 	}
-	
-	@Scheduled(fixedDelay = 5000)
-	public void checkForNewCommits() {
-		repositoryMap.forEach((name, repository) -> {
-			cloneIfRepositoryDoesNotExists(repository);
-			Commit lastCommit = gitService.pullAndGetLastCommitFor(name);
-			Commit currentLastCommit = repository.getLastCommit();
-			if (currentLastCommit == null || !currentLastCommit.equals(lastCommit)) {
-				repository.setLastCommit(lastCommit);
-				eventsService.createEvent(new RepositoryUpdateEvent(name));
-			}
-		});
+
+	private void revalidate(Repository repository) {
+		Instant lastChecked = repository.getLastChecked();
+		long age = lastChecked == null ? Long.MAX_VALUE : Duration.between(lastChecked, Instant.now()).toMillis();
+		if (age > maxStale) {
+			repositoryRefresher.refresh(repository);
+		} else if (age > maxAge) {
+			pollingScheduler.revalidate(repository.getName());
+		}
 	}
 }
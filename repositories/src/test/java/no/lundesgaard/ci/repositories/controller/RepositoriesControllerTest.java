@@ -0,0 +1,129 @@
+package no.lundesgaard.ci.repositories.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import no.lundesgaard.ci.repositories.assembler.CommitResourceAssembler;
+import no.lundesgaard.ci.repositories.assembler.RepositoryResourceAssembler;
+import no.lundesgaard.ci.repositories.model.Repository;
+import no.lundesgaard.ci.repositories.service.RepositoryService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.DigestUtils;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+public class RepositoriesControllerTest {
+	private final StubRepositoryService repositoryService = new StubRepositoryService();
+	private MockMvc mockMvc;
+
+	@Before
+	public void setUp() {
+		RepositoryResourceAssembler repositoryResourceAssembler = new RepositoryResourceAssembler();
+		ReflectionTestUtils.setField(repositoryResourceAssembler, "commitResourceAssembler", new CommitResourceAssembler());
+		RepositoriesController repositoriesController = new RepositoriesController();
+		ReflectionTestUtils.setField(repositoriesController, "repositoryService", repositoryService);
+		ReflectionTestUtils.setField(repositoriesController, "repositoryResourceAssembler", repositoryResourceAssembler);
+		mockMvc = MockMvcBuilders.standaloneSetup(repositoriesController)
+				.setValidator(new Validator() {
+					@Override
+					public boolean supports(Class<?> type) {
+						return false;
+					}
+
+					@Override
+					public void validate(Object target, Errors errors) {
+					}
+				})
+				.build();
+	}
+
+	@Test
+	public void repositoryHasETagOfTrackedRefs() throws Exception {
+		mockMvc.perform(get("/simply-ci"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"v1\""));
+	}
+
+	@Test
+	public void matchingETagIsAnsweredWithoutLoadingTheRepository() throws Exception {
+		mockMvc.perform(get("/simply-ci").header("If-None-Match", "\"v1\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "\"v1\""));
+
+		assertEquals(0, repositoryService.findRepositoryCalls);
+	}
+
+	@Test
+	public void weakAndListedETagsMatch() throws Exception {
+		mockMvc.perform(get("/simply-ci").header("If-None-Match", "\"v0\", W/\"v1\""))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	public void changedRefsAreAnsweredWithTheNewETag() throws Exception {
+		repositoryService.refsVersion = "v2";
+
+		mockMvc.perform(get("/simply-ci").header("If-None-Match", "\"v1\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"v2\""));
+	}
+
+	@Test
+	public void logETagDependsOnTheQuery() throws Exception {
+		String eTag = "\"v1-" + DigestUtils.md5DigestAsHex("limit=10".getBytes(StandardCharsets.UTF_8)) + "\"";
+
+		mockMvc.perform(get("/simply-ci/log?limit=10").header("If-None-Match", eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", eTag));
+		mockMvc.perform(get("/simply-ci/log?limit=20").header("If-None-Match", eTag))
+				.andExpect(status().isOk());
+
+		assertEquals(1, repositoryService.revalidateCalls);
+	}
+
+	@Test
+	public void unknownRepositoryIsNotFound() throws Exception {
+		mockMvc.perform(get("/unknown").header("If-None-Match", "*"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/unknown/log"))
+				.andExpect(status().isNotFound());
+	}
+
+	private static class StubRepositoryService extends RepositoryService {
+		private final Repository repository = new Repository("simply-ci", "https://github.com/georglundesgaard/simply-ci.git");
+		private String refsVersion = "v1";
+		private int findRepositoryCalls;
+		private int revalidateCalls;
+
+		@Override
+		public Repository findRepository(String name) {
+			findRepositoryCalls++;
+			return repository.getName().equals(name) ? repository : null;
+		}
+
+		@Override
+		public String findRefsVersion(String name) {
+			return repository.getName().equals(name) ? refsVersion : null;
+		}
+
+		@Override
+		public boolean repositoryCommitsExists(String name) {
+			return repository.getName().equals(name);
+		}
+
+		@Override
+		public boolean revalidateRepository(String name) {
+			revalidateCalls++;
+			return repository.getName().equals(name);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import no.lundesgaard.ci.repositories.model.ChangedPath;
+import no.lundesgaard.ci.repositories.model.CommitChanges;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CommitChangesServiceTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private RepositoryPool repositoryPool;
+	private CommitChangesService commitChangesService;
+	private Git simplyCi;
+	private Git events;
+
+	@Before
+	public void setUp() throws Exception {
+		File repositoriesRoot = temporaryFolder.getRoot();
+		simplyCi = Git.init().setDirectory(new File(repositoriesRoot, "simply-ci")).call();
+		events = Git.init().setDirectory(new File(repositoriesRoot, "events")).call();
+		repositoryPool = new RepositoryPool();
+		ReflectionTestUtils.setField(repositoryPool, "repositoriesRoot", repositoriesRoot.getPath());
+		ReflectionTestUtils.setField(repositoryPool, "maxOpen", 4);
+		commitChangesService = new CommitChangesService();
+		ReflectionTestUtils.setField(commitChangesService, "repositoryPool", repositoryPool);
+		ReflectionTestUtils.setField(commitChangesService, "cacheSize", 10);
+		ReflectionTestUtils.setField(commitChangesService, "prefetch", 10);
+		commitChangesService.start();
+	}
+
+	@After
+	public void tearDown() {
+		commitChangesService.stop();
+		repositoryPool.closeAll();
+		simplyCi.close();
+		events.close();
+	}
+
+	@Test
+	public void changesListAddedAndModifiedPaths() throws Exception {
+		commit(simplyCi, "README.md", "Simply CI\n");
+		RevCommit commit = commit(simplyCi, "README.md", "Simply CI\nA simple CI server\n");
+
+		CommitChanges commitChanges = commitChangesService.findChanges("simply-ci", commit.getName());
+
+		assertEquals(1, commitChanges.getChangedPaths().size());
+		ChangedPath changedPath = commitChanges.getChangedPaths().get(0);
+		assertEquals("MODIFY", changedPath.getChangeType());
+		assertEquals("README.md", changedPath.getNewPath());
+		assertEquals(1, changedPath.getLinesAdded());
+		assertEquals(0, changedPath.getLinesDeleted());
+	}
+
+	@Test
+	public void cachedChangesAreNotReturnedForAnotherRepository() throws Exception {
+		commit(simplyCi, "README.md", "Simply CI\n");
+		RevCommit commit = commit(events, "README.md", "Events\n");
+
+		assertEquals(commit.getName(), commitChangesService.findChanges("events", commit.getName()).getCommitId());
+		assertNull(commitChangesService.findChanges("simply-ci", commit.getName()));
+	}
+
+	@Test
+	public void invalidCommitIdHasNoChanges() {
+		assertNull(commitChangesService.findChanges("simply-ci", "HEAD"));
+	}
+
+	private RevCommit commit(Git git, String path, String content) throws Exception {
+		Files.write(new File(git.getRepository().getWorkTree(), path).toPath(), content.getBytes(StandardCharsets.UTF_8));
+		git.add().addFilepattern(path).call();
+		return git.commit().setMessage("Update " + path).call();
+	}
+}
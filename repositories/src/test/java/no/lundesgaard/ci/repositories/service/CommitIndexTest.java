@@ -0,0 +1,110 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import no.lundesgaard.ci.repositories.mapper.RevCommitToCommitMapper;
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitField;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommitIndexTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final RevCommitToCommitMapper revCommitToCommitMapper = new RevCommitToCommitMapper();
+	private final CommitIndex commitIndex = new CommitIndex();
+	private final List<List<String>> addedCommitIds = new ArrayList<>();
+	private final List<Boolean> incrementalUpdates = new ArrayList<>();
+	private Git git;
+
+	@Before
+	public void setUp() throws Exception {
+		git = Git.init().setDirectory(temporaryFolder.newFolder("simply-ci")).call();
+	}
+
+	@After
+	public void tearDown() {
+		git.close();
+	}
+
+	@Test
+	public void emptyRepositoryHasNoCommits() throws IOException {
+		assertTrue(update().isEmpty());
+		assertTrue(addedCommitIds.isEmpty());
+	}
+
+	@Test
+	public void firstUpdateIndexesTheWholeLogNewestFirst() throws Exception {
+		RevCommit first = commit("First");
+		RevCommit second = commit("Second");
+
+		assertEquals(Arrays.asList(second.getName(), first.getName()), commitIds(update()));
+		assertEquals(Arrays.asList(Arrays.asList(second.getName(), first.getName())), addedCommitIds);
+		assertEquals(Arrays.asList(false), incrementalUpdates);
+		assertEquals(second, commitIndex.head());
+	}
+
+	@Test
+	public void newCommitsAreWalkedIncrementally() throws Exception {
+		RevCommit first = commit("First");
+		update();
+		RevCommit second = commit("Second");
+		RevCommit third = commit("Third");
+
+		assertEquals(Arrays.asList(third.getName(), second.getName(), first.getName()), commitIds(update()));
+		assertEquals(Arrays.asList(third.getName(), second.getName()), addedCommitIds.get(1));
+		assertEquals(Arrays.asList(false, true), incrementalUpdates);
+	}
+
+	@Test
+	public void unchangedHeadDoesNotWalk() throws Exception {
+		commit("First");
+		List<Commit> commits = update();
+
+		assertEquals(commits, update());
+		assertEquals(1, addedCommitIds.size());
+	}
+
+	@Test
+	public void rewrittenHistoryIsIndexedFromScratch() throws Exception {
+		RevCommit first = commit("First");
+		commit("Second");
+		update();
+		git.reset().setMode(ResetType.HARD).setRef(first.getName()).call();
+		RevCommit rewritten = commit("Rewritten");
+
+		assertEquals(Arrays.asList(rewritten.getName(), first.getName()), commitIds(update()));
+		assertEquals(Arrays.asList(rewritten.getName(), first.getName()), addedCommitIds.get(1));
+		assertEquals(Arrays.asList(false, false), incrementalUpdates);
+	}
+
+	private List<Commit> update() throws IOException {
+		return commitIndex.update(git.getRepository(), revCommitToCommitMapper.commitMapper(CommitField.ALL), (addedCommits, incremental) -> {
+			addedCommitIds.add(commitIds(addedCommits));
+			incrementalUpdates.add(incremental);
+		});
+	}
+
+	private RevCommit commit(String message) throws Exception {
+		return git.commit().setMessage(message).call();
+	}
+
+	private List<String> commitIds(List<Commit> commits) {
+		return commits.stream().map(Commit::getCommitId).collect(toList());
+	}
+}
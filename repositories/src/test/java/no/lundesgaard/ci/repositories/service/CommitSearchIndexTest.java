@@ -0,0 +1,69 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import no.lundesgaard.ci.repositories.model.Author;
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitSearchHit;
+import no.lundesgaard.ci.repositories.model.CommitSearchQuery;
+
+import org.junit.Test;
+
+public class CommitSearchIndexTest {
+	private static final long TIMESTAMP = 1458000000L;
+
+	private final CommitSearchIndex commitSearchIndex = new CommitSearchIndex();
+
+	@Test
+	public void searchReturnsTheNewestMatchingCommitsFirst() {
+		List<Commit> commits = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			commits.add(commit("c" + i, i % 2 == 0 ? "Fix polling" : "Add search", i % 3 == 0 ? "georg" : "alice", i));
+		}
+		commitSearchIndex.add("simply-ci", commits);
+
+		assertEquals(Arrays.asList("simply-ci/c18", "simply-ci/c16", "simply-ci/c14"), search("polling", null, null, 3));
+		assertEquals(Arrays.asList("simply-ci/c18", "simply-ci/c12", "simply-ci/c6", "simply-ci/c0"), search("polling", "georg", null, 10));
+		assertEquals(Arrays.asList("simply-ci/c19", "simply-ci/c18"), search(null, null, null, 2));
+	}
+
+	@Test
+	public void searchIsNarrowedByRepository() {
+		commitSearchIndex.add("simply-ci", Arrays.asList(commit("a1", "Fix polling", "georg", 1)));
+		commitSearchIndex.add("events", Arrays.asList(commit("b1", "Fix polling", "georg", 2)));
+
+		assertEquals(Arrays.asList("events/b1", "simply-ci/a1"), search("polling", null, null, 10));
+		assertEquals(Arrays.asList("simply-ci/a1"), search("polling", null, "simply-ci", 10));
+	}
+
+	@Test
+	public void replaceDropsTheCommitsOfRewrittenHistory() {
+		commitSearchIndex.replace("simply-ci", Arrays.asList(commit("a2", "Add search", "georg", 2), commit("a1", "Fix polling", "georg", 1)));
+		commitSearchIndex.replace("events", Arrays.asList(commit("b1", "Fix polling", "georg", 3)));
+
+		for (int i = 0; i < 5; i++) {
+			commitSearchIndex.replace("simply-ci", Arrays.asList(commit("r" + i, "Rewrite polling", "georg", 10 + i), commit("a1", "Fix polling", "georg", 1)));
+		}
+
+		assertEquals(Arrays.asList("simply-ci/r4", "events/b1", "simply-ci/a1"), search("polling", null, null, 10));
+		assertEquals(Arrays.asList(), search("search", null, null, 10));
+	}
+
+	private Commit commit(String commitId, String message, String author, long time) {
+		ZonedDateTime commitDateTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(TIMESTAMP + time), ZoneOffset.UTC);
+		return new Commit(commitId, new Author(author, author + "@example.com"), commitDateTime, message);
+	}
+
+	private List<String> search(String text, String author, String repository, int limit) {
+		List<CommitSearchHit> hits = commitSearchIndex.search(new CommitSearchQuery(text, author, repository, null, null, limit));
+		return hits.stream().map(hit -> hit.getRepositoryName() + "/" + hit.getCommit().getCommitId()).collect(toList());
+	}
+}
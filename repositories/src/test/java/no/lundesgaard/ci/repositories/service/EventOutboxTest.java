@@ -0,0 +1,95 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class EventOutboxTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File outboxFile;
+	private EventOutbox eventOutbox;
+
+	@Before
+	public void setUp() throws IOException {
+		outboxFile = new File(temporaryFolder.getRoot(), "outbox");
+		eventOutbox = load(10);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		eventOutbox.close();
+	}
+
+	@Test
+	public void acknowledgedEventsAreRemovedInOrder() {
+		add("first", "second", "third");
+
+		List<EventOutbox.Entry> batch = eventOutbox.peek(2);
+		assertEquals(Arrays.asList("first", "second"), values(batch));
+		assertEquals(2, eventOutbox.acknowledge(batch.get(1).getSequence()));
+
+		assertEquals(Arrays.asList("third"), values(eventOutbox.peek(10)));
+	}
+
+	@Test
+	public void unacknowledgedEventsAreRetriedAfterReload() throws IOException {
+		add("first", "second", "third");
+		eventOutbox.acknowledge(eventOutbox.peek(1).get(0).getSequence());
+
+		eventOutbox.close();
+		eventOutbox = load(10);
+
+		assertEquals(Arrays.asList("second", "third"), values(eventOutbox.peek(10)));
+		add("fourth");
+		List<EventOutbox.Entry> entries = eventOutbox.peek(10);
+		assertEquals(Arrays.asList("second", "third", "fourth"), values(entries));
+		assertEquals(entries.get(1).getSequence() + 1, entries.get(2).getSequence());
+	}
+
+	@Test
+	public void oldestEventsAreDroppedAtCapacity() throws IOException {
+		eventOutbox.close();
+		eventOutbox = load(2);
+
+		add("first", "second", "third");
+
+		assertEquals(Arrays.asList("second", "third"), values(eventOutbox.peek(10)));
+		assertEquals(1, eventOutbox.dropped());
+		eventOutbox.close();
+		eventOutbox = load(2);
+		assertEquals(Arrays.asList("second", "third"), values(eventOutbox.peek(10)));
+	}
+
+	private EventOutbox load(int capacity) throws IOException {
+		EventOutbox eventOutbox = new EventOutbox();
+		ReflectionTestUtils.setField(eventOutbox, "outboxPath", outboxFile.getPath());
+		ReflectionTestUtils.setField(eventOutbox, "capacity", capacity);
+		eventOutbox.load();
+		return eventOutbox;
+	}
+
+	private void add(String... values) {
+		for (String value : values) {
+			eventOutbox.add(new RepositoryUpdateEvent(value));
+		}
+	}
+
+	private List<String> values(List<EventOutbox.Entry> entries) {
+		return entries.stream().map(entry -> entry.getEvent().getValue()).collect(toList());
+	}
+}
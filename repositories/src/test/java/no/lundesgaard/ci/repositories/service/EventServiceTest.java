@@ -0,0 +1,112 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import no.lundesgaard.ci.repositories.model.OutboxStatistics;
+import no.lundesgaard.ci.repositories.model.RepositoryUpdateEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+public class EventServiceTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final List<Object> posted = new ArrayList<>();
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+	private RuntimeException failure;
+	private EventOutbox eventOutbox;
+	private EventService eventService;
+
+	@Before
+	public void setUp() throws IOException {
+		eventOutbox = new EventOutbox();
+		ReflectionTestUtils.setField(eventOutbox, "outboxPath", new File(temporaryFolder.getRoot(), "outbox").getPath());
+		ReflectionTestUtils.setField(eventOutbox, "capacity", 100);
+		eventOutbox.load();
+		eventService = new EventService();
+		ReflectionTestUtils.setField(eventService, "eventOutbox", eventOutbox);
+		ReflectionTestUtils.setField(eventService, "eventsUrl", "http://events/");
+		ReflectionTestUtils.setField(eventService, "batchSize", 10);
+		ReflectionTestUtils.setField(eventService, "maxConnections", 1);
+		ReflectionTestUtils.setField(eventService, "minRetryDelay", 10L);
+		ReflectionTestUtils.setField(eventService, "maxRetryDelay", 100L);
+		eventService.start();
+		ReflectionTestUtils.setField(eventService, "restTemplate", new RestTemplate() {
+			@Override
+			public <T> T postForObject(String url, Object request, Class<T> responseType, Object... uriVariables) {
+				if (failuresLeft.getAndDecrement() > 0) {
+					throw failure;
+				}
+				synchronized (posted) {
+					posted.add(request);
+				}
+				return null;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		eventService.stop();
+		eventOutbox.close();
+	}
+
+	@Test
+	public void eventsAreAcknowledgedWhenPublished() throws InterruptedException {
+		eventService.createEvent(new RepositoryUpdateEvent("simply-ci"));
+
+		await(() -> eventService.statistics().getDelivered() == 1);
+
+		assertEquals(0, eventOutbox.size());
+		assertEquals(1, posted.size());
+	}
+
+	@Test
+	public void failedPublishIsRetried() throws InterruptedException {
+		failure = new ResourceAccessException("Connection refused");
+		failuresLeft.set(2);
+
+		eventService.createEvent(new RepositoryUpdateEvent("simply-ci"));
+
+		await(() -> eventService.statistics().getDelivered() == 1);
+		OutboxStatistics statistics = eventService.statistics();
+		assertEquals(2, statistics.getFailures());
+		assertEquals(0, statistics.getRetryDelay());
+		assertEquals(0, statistics.getPending());
+	}
+
+	@Test
+	public void unexpectedExceptionsAreRetried() throws InterruptedException {
+		failure = new IllegalStateException("Unexpected");
+		failuresLeft.set(1);
+
+		eventService.createEvent(new RepositoryUpdateEvent("simply-ci"));
+
+		await(() -> eventService.statistics().getDelivered() == 1);
+		assertEquals(1, eventService.statistics().getFailures());
+		assertEquals("Unexpected", eventService.statistics().getLastError());
+	}
+
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
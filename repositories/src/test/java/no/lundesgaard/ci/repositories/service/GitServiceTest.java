@@ -0,0 +1,180 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import no.lundesgaard.ci.repositories.mapper.RevCommitToCommitMapper;
+import no.lundesgaard.ci.repositories.model.Commit;
+import no.lundesgaard.ci.repositories.model.CommitLogQuery;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class GitServiceTest {
+	private static final String REPOSITORY_NAME = "simply-ci";
+	private static final long TIMESTAMP = 1458000000000L;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private RepositoryPool repositoryPool;
+	private GitService gitService;
+	private Git git;
+	private int commitCount;
+
+	@Before
+	public void setUp() throws Exception {
+		File repositoriesRoot = temporaryFolder.getRoot();
+		git = Git.init().setDirectory(new File(repositoriesRoot, REPOSITORY_NAME)).call();
+		repositoryPool = new RepositoryPool();
+		ReflectionTestUtils.setField(repositoryPool, "repositoriesRoot", repositoriesRoot.getPath());
+		ReflectionTestUtils.setField(repositoryPool, "maxOpen", 4);
+		gitService = new GitService();
+		ReflectionTestUtils.setField(gitService, "repositoriesRoot", repositoriesRoot.getPath());
+		ReflectionTestUtils.setField(gitService, "workTreesRoot", new File(repositoriesRoot, "worktrees").getPath());
+		ReflectionTestUtils.setField(gitService, "repositoryPool", repositoryPool);
+		ReflectionTestUtils.setField(gitService, "revCommitToCommitMapper", new RevCommitToCommitMapper());
+		ReflectionTestUtils.setField(gitService, "commitSearchIndex", new CommitSearchIndex());
+		ReflectionTestUtils.setField(gitService, "commitChangesService", new CommitChangesService() {
+			@Override
+			public void prefetch(String repositoryName, List<Commit> commits) {
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		repositoryPool.closeAll();
+		git.close();
+	}
+
+	@Test
+	public void cursorPagesThroughTheWholeLogOnce() throws Exception {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			expected.add(0, commit("alice").getName());
+		}
+
+		List<String> commitIds = new ArrayList<>();
+		String after = null;
+		List<String> page;
+		do {
+			page = log(new CommitLogQuery(3, after, null, null, null, null));
+			commitIds.addAll(page);
+			after = page.isEmpty() ? null : page.get(page.size() - 1);
+		} while (page.size() == 3);
+
+		assertEquals(expected, commitIds);
+	}
+
+	@Test
+	public void cursorIsFoundWhenItDoesNotMatchTheFilters() throws Exception {
+		List<String> aliceCommitIds = new ArrayList<>();
+		RevCommit bobCommit = null;
+		for (int i = 0; i < 6; i++) {
+			if (i % 2 == 0) {
+				aliceCommitIds.add(0, commit("alice").getName());
+			} else {
+				bobCommit = commit("bob");
+			}
+		}
+
+		List<String> page = log(new CommitLogQuery(10, bobCommit.getName(), null, null, "alice", null));
+
+		assertEquals(aliceCommitIds.subList(0, 3), page);
+	}
+
+	@Test
+	public void cursorIsFoundOutsideTheTimeRange() throws Exception {
+		List<RevCommit> commits = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			commits.add(0, commit("alice"));
+		}
+		ZonedDateTime until = ZonedDateTime.ofInstant(Instant.ofEpochSecond(commits.get(3).getCommitTime()), ZoneOffset.UTC);
+
+		List<String> page = log(new CommitLogQuery(10, commits.get(1).getName(), null, until, null, null));
+
+		assertEquals(commits.subList(3, 6).stream().map(RevCommit::getName).collect(toList()), page);
+	}
+
+	@Test
+	public void projectedLogOnlyMapsTheRequestedFields() throws Exception {
+		RevCommit second = commit("alice");
+		RevCommit first = commit("alice");
+		List<Commit> commits = new ArrayList<>();
+
+		gitService.streamCommitLogFor(REPOSITORY_NAME, new CommitLogQuery(null, null, null, null, null, "commitDateTime"), commits::add);
+
+		assertEquals(Arrays.asList(first.getName(), second.getName()), commits.stream().map(Commit::getCommitId).collect(toList()));
+		assertTrue(commits.stream().allMatch(commit -> commit.getCommitDateTime() != null && commit.getAuthor() == null && commit.getFullMessage() == null));
+	}
+
+	@Test
+	public void commitReachableOnlyForCommitsInTheRepository() throws Exception {
+		RevCommit commit = commit("alice");
+		commit("alice");
+
+		assertTrue(gitService.commitReachable(REPOSITORY_NAME, commit.getName()));
+		assertFalse(gitService.commitReachable(REPOSITORY_NAME, "0123456789012345678901234567890123456789"));
+	}
+
+	@Test
+	public void workTreeIsCheckedOutOnDemandAndDeleted() throws Exception {
+		File readme = new File(git.getRepository().getWorkTree(), "README.md");
+		Files.write(readme.toPath(), "First".getBytes(StandardCharsets.UTF_8));
+		git.add().addFilepattern("README.md").call();
+		RevCommit first = commit("alice");
+		Files.write(readme.toPath(), "Second".getBytes(StandardCharsets.UTF_8));
+		git.add().addFilepattern("README.md").call();
+		commit("alice");
+
+		File workTree = gitService.checkoutWorkTree(REPOSITORY_NAME, first.getName());
+
+		assertEquals("First", new String(Files.readAllBytes(new File(workTree, "README.md").toPath()), StandardCharsets.UTF_8));
+		assertEquals(workTree, gitService.checkoutWorkTree(REPOSITORY_NAME, first.getName()));
+		assertTrue(gitService.deleteWorkTree(REPOSITORY_NAME, first.getName()));
+		assertFalse(workTree.exists());
+		assertFalse(gitService.deleteWorkTree(REPOSITORY_NAME, first.getName()));
+	}
+
+	@Test
+	public void workTreeIsNotCheckedOutForUnknownCommits() throws Exception {
+		commit("alice");
+
+		assertNull(gitService.checkoutWorkTree(REPOSITORY_NAME, "0123456789012345678901234567890123456789"));
+		assertNull(gitService.checkoutWorkTree(REPOSITORY_NAME, "../../etc"));
+	}
+
+	private RevCommit commit(String author) throws Exception {
+		PersonIdent ident = new PersonIdent(author, author + "@example.com", new Date(TIMESTAMP + commitCount * 60000L), TimeZone.getTimeZone("UTC"));
+		return git.commit().setMessage("Commit " + commitCount++).setAuthor(ident).setCommitter(ident).call();
+	}
+
+	private List<String> log(CommitLogQuery query) {
+		List<String> commitIds = new ArrayList<>();
+		gitService.streamCommitLogFor(REPOSITORY_NAME, query, commit -> commitIds.add(commit.getCommitId()));
+		return commitIds;
+	}
+}
@@ -0,0 +1,128 @@
+package no.lundesgaard.ci.repositories.service;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import no.lundesgaard.ci.repositories.model.Repository;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RepositoryRegistryTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File registryFile;
+
+	@Before
+	public void setUp() {
+		registryFile = new File(temporaryFolder.getRoot(), "registry");
+	}
+
+	@Test
+	public void emptyRegistryIsSeededWithSimplyCi() throws IOException {
+		RepositoryRegistry registry = load();
+		registry.close();
+
+		assertEquals(new HashSet<>(Arrays.asList("simply-ci")), new HashSet<>(load().findAllNames()));
+	}
+
+	@Test
+	public void registeredRepositoriesAreReplayed() throws IOException {
+		RepositoryRegistry registry = load();
+		registry.register(new Repository("events", "https://example.com/events.git"));
+		registry.register(new Repository("events", "https://example.com/events-moved.git"));
+		registry.close();
+
+		RepositoryRegistry replayedRegistry = load();
+
+		assertEquals(new HashSet<>(Arrays.asList("simply-ci", "events")), new HashSet<>(replayedRegistry.findAllNames()));
+		assertEquals("https://example.com/events-moved.git", replayedRegistry.find("events").getUrl());
+	}
+
+	@Test
+	public void truncatedRecordIsDroppedOnReplay() throws IOException {
+		long validLength = registerAndClose();
+		Files.write(registryFile.toPath(), new byte[] {0, 6, 'b', 'u', 'i'}, APPEND);
+
+		assertTornTailIsTruncated(validLength);
+	}
+
+	@Test
+	public void malformedRecordIsDroppedOnReplay() throws IOException {
+		long validLength = registerAndClose();
+		Files.write(registryFile.toPath(), new byte[] {0, 2, (byte) 0xff, (byte) 0xff, 0, 0}, APPEND);
+
+		assertTornTailIsTruncated(validLength);
+	}
+
+	@Test
+	public void registeringAnExistingNameKeepsTheRepositoryState() throws IOException {
+		RepositoryRegistry registry = load();
+		Repository repository = registry.find("simply-ci");
+		Instant lastChecked = Instant.now();
+		repository.setLastChecked(lastChecked);
+
+		registry.register(new Repository("simply-ci", "https://example.com/simply-ci.git"));
+
+		assertSame(repository, registry.find("simply-ci"));
+		assertEquals("https://example.com/simply-ci.git", repository.getUrl());
+		assertEquals(lastChecked, repository.getLastChecked());
+		registry.close();
+	}
+
+	@Test
+	public void namesThatCollideWithRoutesOrPathsAreRejected() throws IOException {
+		RepositoryRegistry registry = load();
+
+		for (String name : Arrays.asList("", "-", ".", "..", "a/b", "a\\b")) {
+			assertFalse(name, registry.isValidName(name));
+			try {
+				registry.register(new Repository(name, "https://example.com/invalid.git"));
+				fail(name);
+			} catch (RepositoryRegistryException e) {
+				assertFalse(registry.contains(name));
+			}
+		}
+		assertTrue(registry.isValidName("simply-ci"));
+		registry.close();
+	}
+
+	private long registerAndClose() throws IOException {
+		RepositoryRegistry registry = load();
+		registry.register(new Repository("events", "https://example.com/events.git"));
+		registry.close();
+		return registryFile.length();
+	}
+
+	private void assertTornTailIsTruncated(long validLength) throws IOException {
+		RepositoryRegistry registry = load();
+
+		assertEquals(validLength, registryFile.length());
+		assertEquals(new HashSet<>(Arrays.asList("simply-ci", "events")), new HashSet<>(registry.findAllNames()));
+		registry.register(new Repository("builds", "https://example.com/builds.git"));
+		registry.close();
+		assertEquals("https://example.com/builds.git", load().find("builds").getUrl());
+	}
+
+	private RepositoryRegistry load() throws IOException {
+		RepositoryRegistry registry = new RepositoryRegistry();
+		ReflectionTestUtils.setField(registry, "registryPath", registryFile.getPath());
+		registry.load();
+		return registry;
+	}
+}